@@ -0,0 +1,29 @@
+package data;
+
+/**
+ * One value of a facet and the number of hotels with that value among the hotels matching the other facets.
+ */
+public class FacetCount {
+    private final String value;
+    private final String label;
+    private final int count;
+
+    public FacetCount(String value, String label, int count) {
+        this.value = value;
+        this.label = label;
+        this.count = count;
+    }
+
+    //Getters
+    public String getValue() {
+        return value;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,201 @@
+package data;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of all hotels, indexed by id, by name, by the words of the names for searching,
+ * and by location.
+ * A new snapshot is built whenever hotels are registered, and readers always see one complete snapshot,
+ * so lookups need no lock. Every snapshot has a higher version than the one it replaces.
+ */
+public class HotelCatalog {
+    private final long version;
+    private final String contentHash;
+    private final List<Hotel> hotels;
+    private final List<String> names;
+    private final Map<String, Hotel> byId;
+    private final Map<String, Hotel> byName;
+    private final Map<String, Integer> ordinals;
+    private final HotelSearchIndex searchIndex;
+    private final HotelSuggester suggester;
+    private final HotelGeoIndex geoIndex;
+
+    /**
+     * Builds a snapshot of the given hotels
+     *
+     * @param version version of the snapshot
+     * @param hotels  hotels in the order they are listed
+     */
+    public HotelCatalog(long version, List<Hotel> hotels) {
+        this.version = version;
+        Map<String, Hotel> idIndex = new LinkedHashMap<>();
+        for (Hotel hotel : hotels) {
+            idIndex.putIfAbsent(hotel.getId(), hotel);
+        }
+        Map<String, Hotel> nameIndex = new HashMap<>();
+        List<String> hotelNames = new ArrayList<>(idIndex.size());
+        for (Hotel hotel : idIndex.values()) {
+            nameIndex.putIfAbsent(hotel.getName(), hotel);
+            hotelNames.add(hotel.getName());
+        }
+        this.hotels = Collections.unmodifiableList(new ArrayList<>(idIndex.values()));
+        this.names = Collections.unmodifiableList(hotelNames);
+        this.byId = Collections.unmodifiableMap(idIndex);
+        this.byName = Collections.unmodifiableMap(nameIndex);
+        Map<String, Integer> ordinalIndex = new HashMap<>();
+        for (int ordinal = 0; ordinal < this.hotels.size(); ordinal++) {
+            ordinalIndex.put(this.hotels.get(ordinal).getId(), ordinal);
+        }
+        this.ordinals = Collections.unmodifiableMap(ordinalIndex);
+        this.searchIndex = new HotelSearchIndex(this.hotels);
+        this.suggester = new HotelSuggester(this.hotels);
+        this.geoIndex = new HotelGeoIndex(this.hotels);
+        this.contentHash = hashContent(this.hotels);
+    }
+
+    /**
+     * Hashes the ids and names of the hotels in order. Unlike the version, which starts again at 1 when the
+     * server restarts, the hash is the same for the same hotels, so it can be used as an ETag.
+     *
+     * @param hotels hotels of the snapshot
+     * @return the first 16 bytes of the SHA-256 hash as hex
+     */
+    private static String hashContent(List<Hotel> hotels) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Hotel hotel : hotels) {
+            digest.update(hotel.getId().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(hotel.getName()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        StringBuilder hex = new StringBuilder();
+        byte[] hash = digest.digest();
+        for (int i = 0; i < 16; i++) {
+            hex.append(String.format("%02x", hash[i]));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Builds the next snapshot with the given hotels added
+     *
+     * @param added new hotels
+     * @return a new snapshot; this one is not changed
+     */
+    public HotelCatalog withHotels(List<Hotel> added) {
+        List<Hotel> all = new ArrayList<>(hotels.size() + added.size());
+        all.addAll(hotels);
+        all.addAll(added);
+        return new HotelCatalog(version + 1, all);
+    }
+
+    /**
+     * Finds hotels by words or a part of their name
+     *
+     * @param query search query
+     * @return matching hotels, best matches first
+     */
+    public List<Hotel> search(String query) {
+        return searchIndex.search(query);
+    }
+
+    /**
+     * Completes a hotel name from what the user typed so far
+     *
+     * @param prefix start of the name or of a word in the name
+     * @param limit  maximum number of hotels
+     * @return hotels whose name completes the prefix
+     */
+    public List<Hotel> suggest(String prefix, int limit) {
+        return suggester.suggest(prefix, limit);
+    }
+
+    /**
+     * Finds the hotels nearest to a hotel
+     *
+     * @param hotelId id of the hotel
+     * @param k       number of hotels
+     * @return the k nearest other hotels, nearest first
+     */
+    public List<NearbyHotel> nearest(String hotelId, int k) {
+        return geoIndex.nearest(getOrdinal(hotelId), k);
+    }
+
+    /**
+     * Finds the hotels nearest to a point
+     *
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     * @param k   number of hotels
+     * @return the k nearest hotels, nearest first
+     */
+    public List<NearbyHotel> nearest(double lat, double lng, int k) {
+        return geoIndex.nearest(lat, lng, k);
+    }
+
+    /**
+     * Finds the hotels within a distance of a point
+     *
+     * @param lat      latitude in degrees
+     * @param lng      longitude in degrees
+     * @param radiusKm maximum distance in km
+     * @param limit    maximum number of hotels
+     * @return hotels within the radius, nearest first
+     */
+    public List<NearbyHotel> within(double lat, double lng, double radiusKm, int limit) {
+        return geoIndex.within(lat, lng, radiusKm, limit);
+    }
+
+    /**
+     * Returns the position of a hotel in getHotels(), which identifies the hotel in the indexes of this snapshot
+     *
+     * @param hotelId id of the hotel
+     * @return ordinal of the hotel, or -1 if there is no such hotel
+     */
+    public int getOrdinal(String hotelId) {
+        Integer ordinal = hotelId == null ? null : ordinals.get(hotelId);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    //Getters
+    public long getVersion() {
+        return version;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Hotel getById(String hotelId) {
+        return byId.get(hotelId);
+    }
+
+    public Hotel getByName(String name) {
+        return byName.get(name);
+    }
+
+    public List<Hotel> getHotels() {
+        return hotels;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public int size() {
+        return hotels.size();
+    }
+}
@@ -0,0 +1,278 @@
+package data;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed bitmap indexes over the hotels of a HotelCatalog snapshot, identified by their ordinal.
+ * There is a bitmap per city and per state, per minimum rating (hotels whose average rating rounded
+ * down is at least 1, 2, ... 5), and per review count bucket, so filtering by several facets is an
+ * intersection of a few bitmaps, and a facet count is the cardinality of an intersection.
+ * Cities and states only change with a new catalog snapshot. Ratings change with every review, so
+ * updateRating() moves a hotel to its new rating band and review count bucket under a write lock;
+ * queries take the read lock.
+ */
+public class HotelFacetIndex {
+    private static final int[] REVIEW_COUNT_BOUNDS = {0, 1, 10, 50, 100, 500};
+    private static final int MAX_VALUE_COUNTS = 50;
+
+    private final HotelCatalog catalog;
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byCity = new HashMap<>();
+    private final Map<String, RoaringBitmap> byState = new HashMap<>();
+    private final RoaringBitmap[] atLeastRating = new RoaringBitmap[6];
+    private final RoaringBitmap[] reviewCountBuckets = new RoaringBitmap[REVIEW_COUNT_BOUNDS.length];
+    private final long[] ratingSums;
+    private final int[] ratingCounts;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Builds the bitmaps
+     *
+     * @param catalog hotel catalog snapshot
+     * @param ratings rating summaries of the hotels that have reviews
+     */
+    public HotelFacetIndex(HotelCatalog catalog, List<HotelRating> ratings) {
+        this.catalog = catalog;
+        List<Hotel> hotels = catalog.getHotels();
+        this.ratingSums = new long[hotels.size()];
+        this.ratingCounts = new int[hotels.size()];
+        for (int i = 1; i < atLeastRating.length; i++) {
+            atLeastRating[i] = new RoaringBitmap();
+        }
+        for (int i = 0; i < reviewCountBuckets.length; i++) {
+            reviewCountBuckets[i] = new RoaringBitmap();
+        }
+        for (HotelRating rating : ratings) {
+            int ordinal = catalog.getOrdinal(rating.getHotelId());
+            if (ordinal >= 0) {
+                ratingSums[ordinal] = rating.getRatingSum();
+                ratingCounts[ordinal] = rating.getRatingCount();
+            }
+        }
+        for (int ordinal = 0; ordinal < hotels.size(); ordinal++) {
+            Hotel hotel = hotels.get(ordinal);
+            all.add(ordinal);
+            if (hotel.getCity() != null) {
+                byCity.computeIfAbsent(hotel.getCity(), c -> new RoaringBitmap()).add(ordinal);
+            }
+            if (hotel.getState() != null) {
+                byState.computeIfAbsent(hotel.getState(), s -> new RoaringBitmap()).add(ordinal);
+            }
+            for (int minRating = 1; minRating <= band(ordinal); minRating++) {
+                atLeastRating[minRating].add(ordinal);
+            }
+            reviewCountBuckets[bucket(ratingCounts[ordinal])].add(ordinal);
+        }
+        byCity.values().forEach(RoaringBitmap::runOptimize);
+        byState.values().forEach(RoaringBitmap::runOptimize);
+    }
+
+    /**
+     * Sets the rating summary of a hotel and moves it to its new rating band and review count bucket
+     *
+     * @param hotelId   id of the hotel
+     * @param ratingSum sum of the ratings of its reviews
+     * @param count     number of reviews
+     */
+    public void updateRating(String hotelId, long ratingSum, int count) {
+        int ordinal = catalog.getOrdinal(hotelId);
+        if (ordinal < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            setRating(ordinal, ratingSum, count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the hotels matching the filter and counts the values of every facet
+     *
+     * @param filter facets to filter by
+     * @return matching hotels and facet counts
+     */
+    public HotelFacetResult filter(HotelFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap city = filter.getCity() == null ? null : byCity.getOrDefault(filter.getCity(), new RoaringBitmap());
+            RoaringBitmap state = filter.getState() == null ? null : byState.getOrDefault(filter.getState(), new RoaringBitmap());
+            RoaringBitmap rating = filter.getMinRating() > 0 ? atLeastRating[Math.min(5, filter.getMinRating())] : null;
+            RoaringBitmap reviews = filter.hasReviewRange() ? reviewCountRange(filter.getMinReviews(), filter.getMaxReviews()) : null;
+
+            RoaringBitmap matches = intersect(city, state, rating, reviews);
+            if (matches == null) {
+                matches = all;
+            } else if (matches == rating) {
+                // the result is read after the lock is released, so it must not share a bitmap that updateRating changes
+                matches = rating.clone();
+            }
+            List<FacetCount> cityCounts = countValues(byCity, intersect(state, rating, reviews));
+            List<FacetCount> stateCounts = countValues(byState, intersect(city, rating, reviews));
+
+            RoaringBitmap withoutRating = intersect(city, state, reviews);
+            List<FacetCount> ratingFacet = new ArrayList<>();
+            for (int minRating = 1; minRating < atLeastRating.length; minRating++) {
+                ratingFacet.add(new FacetCount(String.valueOf(minRating), minRating + "+",
+                        count(withoutRating, atLeastRating[minRating])));
+            }
+
+            RoaringBitmap withoutReviews = intersect(city, state, rating);
+            List<FacetCount> reviewFacet = new ArrayList<>();
+            for (int bucket = 0; bucket < reviewCountBuckets.length; bucket++) {
+                int min = REVIEW_COUNT_BOUNDS[bucket];
+                int max = bucket + 1 < REVIEW_COUNT_BOUNDS.length ? REVIEW_COUNT_BOUNDS[bucket + 1] - 1 : -1;
+                String label = max < 0 ? min + "+" : min == max ? String.valueOf(min) : min + "-" + max;
+                reviewFacet.add(new FacetCount(min + ":" + max, label,
+                        count(withoutReviews, reviewCountBuckets[bucket])));
+            }
+            return new HotelFacetResult(catalog, matches, cityCounts, stateCounts, ratingFacet, reviewFacet);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCatalogVersion() {
+        return catalog.getVersion();
+    }
+
+    /**
+     * Intersects the bitmaps of the facets that are used
+     *
+     * @param bitmaps bitmaps of the facets, null for facets that are not used
+     * @return the hotels in all given bitmaps, which is one of the given bitmaps if only one is used,
+     * or null if no facet is used
+     */
+    private static RoaringBitmap intersect(RoaringBitmap... bitmaps) {
+        RoaringBitmap result = null;
+        for (RoaringBitmap bitmap : bitmaps) {
+            if (bitmap != null) {
+                result = result == null ? bitmap : RoaringBitmap.and(result, bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the hotels of a facet value among the given hotels
+     *
+     * @param base  hotels matching the other facets, or null for all hotels
+     * @param value hotels with the facet value
+     * @return number of hotels in both
+     */
+    private static int count(RoaringBitmap base, RoaringBitmap value) {
+        return base == null ? value.getCardinality() : RoaringBitmap.andCardinality(base, value);
+    }
+
+    /**
+     * Counts the hotels of every value of a facet among the given hotels
+     *
+     * @param values  bitmap of every value of the facet
+     * @param base    hotels matching the other facets, or null for all hotels
+     * @return the values with at least one hotel, most hotels first, at most MAX_VALUE_COUNTS of them
+     */
+    private static List<FacetCount> countValues(Map<String, RoaringBitmap> values, RoaringBitmap base) {
+        List<FacetCount> counts = new ArrayList<>();
+        for (Map.Entry<String, RoaringBitmap> entry : values.entrySet()) {
+            int count = count(base, entry.getValue());
+            if (count > 0) {
+                counts.add(new FacetCount(entry.getKey(), entry.getKey(), count));
+            }
+        }
+        counts.sort(Comparator.comparingInt(FacetCount::getCount).reversed().thenComparing(FacetCount::getValue));
+        return counts.size() > MAX_VALUE_COUNTS ? new ArrayList<>(counts.subList(0, MAX_VALUE_COUNTS)) : counts;
+    }
+
+    /**
+     * Builds the bitmap of the hotels with a number of reviews in the range. Buckets that are
+     * inside the range are added whole; the hotels of buckets that are only partly inside are checked one by one.
+     *
+     * @param min minimum number of reviews
+     * @param max maximum number of reviews, or -1 for no maximum
+     * @return hotels in the range
+     */
+    private RoaringBitmap reviewCountRange(int min, int max) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (int bucket = 0; bucket < reviewCountBuckets.length; bucket++) {
+            int bucketMin = REVIEW_COUNT_BOUNDS[bucket];
+            int bucketMax = bucket + 1 < REVIEW_COUNT_BOUNDS.length ? REVIEW_COUNT_BOUNDS[bucket + 1] - 1 : Integer.MAX_VALUE;
+            int rangeMax = max < 0 ? Integer.MAX_VALUE : max;
+            if (bucketMax < min || bucketMin > rangeMax) {
+                continue;
+            }
+            if (bucketMin >= min && bucketMax <= rangeMax) {
+                result.or(reviewCountBuckets[bucket]);
+            } else {
+                IntIterator ordinals = reviewCountBuckets[bucket].getIntIterator();
+                while (ordinals.hasNext()) {
+                    int ordinal = ordinals.next();
+                    if (ratingCounts[ordinal] >= min && ratingCounts[ordinal] <= rangeMax) {
+                        result.add(ordinal);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores a rating summary and moves the hotel between bitmaps if its rating band or bucket changed.
+     * Must be called with the write lock held.
+     */
+    private void setRating(int ordinal, long ratingSum, int count) {
+        int oldBand = band(ordinal);
+        int oldBucket = bucket(ratingCounts[ordinal]);
+        ratingSums[ordinal] = ratingSum;
+        ratingCounts[ordinal] = count;
+        int newBand = band(ordinal);
+        int newBucket = bucket(count);
+        for (int minRating = Math.min(oldBand, newBand) + 1; minRating <= Math.max(oldBand, newBand); minRating++) {
+            if (newBand > oldBand) {
+                atLeastRating[minRating].add(ordinal);
+            } else {
+                atLeastRating[minRating].remove(ordinal);
+            }
+        }
+        if (newBucket != oldBucket) {
+            reviewCountBuckets[oldBucket].remove(ordinal);
+            reviewCountBuckets[newBucket].add(ordinal);
+        }
+    }
+
+    /**
+     * Finds the rating band of a hotel
+     *
+     * @param ordinal hotel ordinal
+     * @return the average rating rounded down, from 1 to 5, or 0 if the hotel has no reviews
+     */
+    private int band(int ordinal) {
+        if (ratingCounts[ordinal] == 0) {
+            return 0;
+        }
+        int band = (int) Math.floor((double) ratingSums[ordinal] / ratingCounts[ordinal]);
+        return Math.max(1, Math.min(5, band));
+    }
+
+    /**
+     * Finds the review count bucket of a number of reviews
+     *
+     * @param count number of reviews
+     * @return index of the bucket in REVIEW_COUNT_BOUNDS
+     */
+    private static int bucket(int count) {
+        int bucket = 0;
+        while (bucket + 1 < REVIEW_COUNT_BOUNDS.length && count >= REVIEW_COUNT_BOUNDS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
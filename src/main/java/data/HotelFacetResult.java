@@ -0,0 +1,117 @@
+package data;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The hotels matching a HotelFilter, with the counts of every facet value among the hotels
+ * matching the other facets, so the counts show how many hotels each choice would give.
+ */
+public class HotelFacetResult {
+    private final HotelCatalog catalog;
+    private final RoaringBitmap matches;
+    private final List<FacetCount> cityCounts;
+    private final List<FacetCount> stateCounts;
+    private final List<FacetCount> ratingCounts;
+    private final List<FacetCount> reviewCountCounts;
+
+    public HotelFacetResult(HotelCatalog catalog, RoaringBitmap matches, List<FacetCount> cityCounts,
+                            List<FacetCount> stateCounts, List<FacetCount> ratingCounts,
+                            List<FacetCount> reviewCountCounts) {
+        this.catalog = catalog;
+        this.matches = matches;
+        this.cityCounts = cityCounts;
+        this.stateCounts = stateCounts;
+        this.ratingCounts = ratingCounts;
+        this.reviewCountCounts = reviewCountCounts;
+    }
+
+    /**
+     * Returns the matching hotels in catalog order
+     *
+     * @return matching hotels
+     */
+    public List<Hotel> getHotels() {
+        List<Hotel> hotels = new ArrayList<>(matches.getCardinality());
+        IntIterator ordinals = matches.getIntIterator();
+        while (ordinals.hasNext()) {
+            hotels.add(catalog.getHotels().get(ordinals.next()));
+        }
+        return hotels;
+    }
+
+    /**
+     * Returns a page of the matching hotels in catalog order. The first hotel of the page is found
+     * with a select on the bitmap, so only the hotels of the page are read.
+     *
+     * @param number number of the page, starting at 1
+     * @param size   maximum number of hotels on the page
+     * @return the page, which is empty if the number is past the last page
+     */
+    public HotelPage getPage(int number, int size) {
+        long offset = (long) (number - 1) * size;
+        PeekableIntIterator ordinals = matches.getIntIterator();
+        if (offset >= matches.getCardinality()) {
+            return new HotelPage(new ArrayList<>(), number, size, getTotal(), null);
+        }
+        if (offset > 0) {
+            ordinals.advanceIfNeeded(matches.select((int) offset));
+        }
+        return readPage(ordinals, number, size);
+    }
+
+    /**
+     * Returns the page of the matching hotels that follows a hotel, in catalog order
+     *
+     * @param cursor id of the last hotel of the previous page
+     * @param size   maximum number of hotels on the page
+     * @return the page after the hotel, or the first page if there is no hotel with that id
+     */
+    public HotelPage getPageAfter(String cursor, int size) {
+        int ordinal = catalog.getOrdinal(cursor);
+        if (ordinal < 0) {
+            return getPage(1, size);
+        }
+        int before = matches.rank(ordinal);
+        PeekableIntIterator ordinals = matches.getIntIterator();
+        ordinals.advanceIfNeeded(ordinal + 1);
+        return readPage(ordinals, before / size + 1, size);
+    }
+
+    /**
+     * Reads up to size hotels from the iterator into a page
+     */
+    private HotelPage readPage(PeekableIntIterator ordinals, int number, int size) {
+        List<Hotel> catalogHotels = catalog.getHotels();
+        List<Hotel> hotels = new ArrayList<>(Math.min(size, getTotal()));
+        while (ordinals.hasNext() && hotels.size() < size) {
+            hotels.add(catalogHotels.get(ordinals.next()));
+        }
+        String nextCursor = ordinals.hasNext() && !hotels.isEmpty() ? hotels.get(hotels.size() - 1).getId() : null;
+        return new HotelPage(hotels, number, size, getTotal(), nextCursor);
+    }
+
+    public int getTotal() {
+        return matches.getCardinality();
+    }
+
+    public List<FacetCount> getCityCounts() {
+        return cityCounts;
+    }
+
+    public List<FacetCount> getStateCounts() {
+        return stateCounts;
+    }
+
+    public List<FacetCount> getRatingCounts() {
+        return ratingCounts;
+    }
+
+    public List<FacetCount> getReviewCountCounts() {
+        return reviewCountCounts;
+    }
+}
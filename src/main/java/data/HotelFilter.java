@@ -0,0 +1,88 @@
+package data;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The facets a hotel listing is filtered by. A facet that is null (or 0 for the numbers) is not used,
+ * and maxReviews is -1 when there is no upper limit.
+ */
+public class HotelFilter {
+    private final String city;
+    private final String state;
+    private final int minRating;
+    private final int minReviews;
+    private final int maxReviews;
+
+    public HotelFilter(String city, String state, int minRating, int minReviews, int maxReviews) {
+        this.city = city == null || city.isEmpty() ? null : city;
+        this.state = state == null || state.isEmpty() ? null : state;
+        this.minRating = minRating;
+        this.minReviews = Math.max(0, minReviews);
+        this.maxReviews = maxReviews;
+    }
+
+    /**
+     * Checks if any facet is used
+     *
+     * @return true if the filter can leave out hotels
+     */
+    public boolean isActive() {
+        return city != null || state != null || minRating > 0 || hasReviewRange();
+    }
+
+    /**
+     * Checks if the review count facet is used
+     *
+     * @return true if there is a minimum or maximum number of reviews
+     */
+    public boolean hasReviewRange() {
+        return minReviews > 0 || maxReviews >= 0;
+    }
+
+    /**
+     * Encodes the facets that are used as query parameters, so links to other pages keep the filter
+     *
+     * @return url-encoded parameters joined with '&amp;', or an empty string if no facet is used
+     */
+    public String toQueryString() {
+        StringBuilder query = new StringBuilder();
+        appendParameter(query, "city", city);
+        appendParameter(query, "state", state);
+        appendParameter(query, "minRating", minRating > 0 ? String.valueOf(minRating) : null);
+        appendParameter(query, "minReviews", minReviews > 0 ? String.valueOf(minReviews) : null);
+        appendParameter(query, "maxReviews", maxReviews >= 0 ? String.valueOf(maxReviews) : null);
+        return query.toString();
+    }
+
+    private static void appendParameter(StringBuilder query, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        if (query.length() > 0) {
+            query.append('&');
+        }
+        query.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+
+    //Getters
+    public String getCity() {
+        return city;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public int getMinRating() {
+        return minRating;
+    }
+
+    public int getMinReviews() {
+        return minReviews;
+    }
+
+    public int getMaxReviews() {
+        return maxReviews;
+    }
+}
@@ -0,0 +1,313 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable spatial index over the hotel coordinates, built together with a HotelCatalog snapshot.
+ * Every hotel is stored as a point on the unit sphere (x, y, z), so distances are correct everywhere,
+ * including across the date line and near the poles. The straight line (chord) distance between two
+ * points grows with the distance along the surface, so the points are kept in a k-d tree over the
+ * chord distance and converted to km only for the results.
+ * The tree is implicit: the points are reordered in primitive arrays so that the middle of every range
+ * is the node splitting it, and only the split axis of every node is stored. Hotels whose coordinates
+ * cannot be parsed are left out.
+ */
+public class HotelGeoIndex {
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final int LEAF_SIZE = 8;
+
+    private final List<Hotel> hotels;
+    private final double[][] coordinates;
+    private final int[] ordinals;
+    private final byte[] splitAxes;
+    private final int[] ordinalPositions;
+
+    /**
+     * Builds the tree
+     *
+     * @param hotels hotels of the catalog; a hotel is identified by its position in this list
+     */
+    public HotelGeoIndex(List<Hotel> hotels) {
+        this.hotels = hotels;
+        List<double[]> points = new ArrayList<>(hotels.size());
+        List<Integer> pointOrdinals = new ArrayList<>(hotels.size());
+        for (int ordinal = 0; ordinal < hotels.size(); ordinal++) {
+            double[] point = toPoint(hotels.get(ordinal).getLat(), hotels.get(ordinal).getLng());
+            if (point != null) {
+                points.add(point);
+                pointOrdinals.add(ordinal);
+            }
+        }
+        int size = points.size();
+        this.coordinates = new double[3][size];
+        this.ordinals = new int[size];
+        this.splitAxes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                coordinates[axis][i] = points.get(i)[axis];
+            }
+            ordinals[i] = pointOrdinals.get(i);
+        }
+        build(0, size);
+        this.ordinalPositions = new int[hotels.size()];
+        Arrays.fill(ordinalPositions, -1);
+        for (int i = 0; i < size; i++) {
+            ordinalPositions[ordinals[i]] = i;
+        }
+    }
+
+    /**
+     * Finds the hotels within a distance of a point, nearest first. Only the nearest limit hotels are kept
+     * while the tree is searched, so a large radius costs no more than a nearest query.
+     *
+     * @param lat      latitude of the point in degrees
+     * @param lng      longitude of the point in degrees
+     * @param radiusKm maximum distance in km
+     * @param limit    maximum number of hotels
+     * @return hotels within the radius, nearest first
+     */
+    public List<NearbyHotel> within(double lat, double lng, double radiusKm, int limit) {
+        if (radiusKm < 0) {
+            return new ArrayList<>();
+        }
+        double chord = radiusKm >= Math.PI * EARTH_RADIUS_KM ? 2.0 : 2 * Math.sin(radiusKm / (2 * EARTH_RADIUS_KM));
+        return nearest(toPoint(lat, lng), limit, -1, chord * chord);
+    }
+
+    /**
+     * Finds the hotels nearest to a point
+     *
+     * @param lat latitude of the point in degrees
+     * @param lng longitude of the point in degrees
+     * @param k   number of hotels
+     * @return the k nearest hotels, nearest first
+     */
+    public List<NearbyHotel> nearest(double lat, double lng, int k) {
+        return nearest(toPoint(lat, lng), k, -1, Double.MAX_VALUE);
+    }
+
+    /**
+     * Finds the hotels nearest to a hotel, not including the hotel itself
+     *
+     * @param ordinal position of the hotel in the catalog
+     * @param k       number of hotels
+     * @return the k nearest other hotels, nearest first, or an empty list if the hotel has no coordinates
+     */
+    public List<NearbyHotel> nearest(int ordinal, int k) {
+        if (ordinal < 0 || ordinal >= ordinalPositions.length || ordinalPositions[ordinal] < 0) {
+            return new ArrayList<>();
+        }
+        int position = ordinalPositions[ordinal];
+        double[] query = {coordinates[0][position], coordinates[1][position], coordinates[2][position]};
+        return nearest(query, k, position, Double.MAX_VALUE);
+    }
+
+    /**
+     * Finds the points nearest to a query point with a bounded max-heap of the best points so far.
+     * A subtree is skipped when it is farther than the bound, or than the k-th best point once k are found.
+     *
+     * @param query    point on the unit sphere
+     * @param k        number of points
+     * @param excluded position of a point to leave out, or -1
+     * @param bound    squared chord distance the points must be within
+     * @return the k nearest hotels within the bound, nearest first
+     */
+    private List<NearbyHotel> nearest(double[] query, int k, int excluded, double bound) {
+        List<NearbyHotel> results = new ArrayList<>();
+        if (query == null || k <= 0) {
+            return results;
+        }
+        PriorityQueue<double[]> best = new PriorityQueue<>(Math.min(k, ordinals.length) + 1,
+                (a, b) -> Double.compare(b[1], a[1]));
+        collectNearest(0, ordinals.length, query, k, excluded, bound, best);
+        while (!best.isEmpty()) {
+            double[] entry = best.poll();
+            results.add(toResult((int) entry[0], entry[1]));
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Adds the points of a range that are within the bound and nearer than the k-th best point so far
+     *
+     * @param from     first position of the range
+     * @param to       end of the range, exclusive
+     * @param query    point on the unit sphere
+     * @param k        number of points
+     * @param excluded position of a point to leave out, or -1
+     * @param bound    squared chord distance the points must be within
+     * @param best     max-heap of (position, squared distance)
+     */
+    private void collectNearest(int from, int to, double[] query, int k, int excluded, double bound,
+                                PriorityQueue<double[]> best) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                offer(i, query, k, excluded, bound, best);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        offer(middle, query, k, excluded, bound, best);
+        int axis = splitAxes[middle];
+        double difference = query[axis] - coordinates[axis][middle];
+        int nearFrom = difference <= 0 ? from : middle + 1;
+        int nearTo = difference <= 0 ? middle : to;
+        collectNearest(nearFrom, nearTo, query, k, excluded, bound, best);
+        double squaredDifference = difference * difference;
+        if (squaredDifference <= bound && (best.size() < k || squaredDifference < best.peek()[1])) {
+            collectNearest(difference <= 0 ? middle + 1 : from, difference <= 0 ? to : middle, query, k, excluded,
+                    bound, best);
+        }
+    }
+
+    /**
+     * Adds a point to the heap of the nearest points if it is within the bound and nearer than the k-th best point
+     */
+    private void offer(int position, double[] query, int k, int excluded, double bound, PriorityQueue<double[]> best) {
+        if (position == excluded) {
+            return;
+        }
+        double distance = squaredDistance(position, query);
+        if (distance > bound) {
+            return;
+        }
+        if (best.size() < k) {
+            best.add(new double[]{position, distance});
+        } else if (distance < best.peek()[1]) {
+            best.poll();
+            best.add(new double[]{position, distance});
+        }
+    }
+
+    /**
+     * Reorders a range of points into a k-d tree: the middle point is the median on the axis where
+     * the range is widest, and the points before and after it form the two subtrees
+     *
+     * @param from first position of the range
+     * @param to   end of the range, exclusive
+     */
+    private void build(int from, int to) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+        int axis = widestAxis(from, to);
+        int middle = (from + to) >>> 1;
+        select(axis, from, to - 1, middle);
+        splitAxes[middle] = (byte) axis;
+        build(from, middle);
+        build(middle + 1, to);
+    }
+
+    /**
+     * Finds the axis along which the points of a range are spread the most
+     */
+    private int widestAxis(int from, int to) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, coordinates[axis][i]);
+                max = Math.max(max, coordinates[axis][i]);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = axis;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Moves the point that belongs at position k, ordered by the axis, to position k, with smaller or
+     * equal points before it and larger or equal points after it (quickselect)
+     *
+     * @param axis  axis to order by
+     * @param left  first position, inclusive
+     * @param right last position, inclusive
+     * @param k     position to select
+     */
+    private void select(int axis, int left, int right, int k) {
+        double[] values = coordinates[axis];
+        while (right > left) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        for (int axis = 0; axis < 3; axis++) {
+            double value = coordinates[axis][i];
+            coordinates[axis][i] = coordinates[axis][j];
+            coordinates[axis][j] = value;
+        }
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+    }
+
+    private double squaredDistance(int position, double[] query) {
+        double dx = coordinates[0][position] - query[0];
+        double dy = coordinates[1][position] - query[1];
+        double dz = coordinates[2][position] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Builds a result from a point and its squared chord distance
+     */
+    private NearbyHotel toResult(int position, double squaredChord) {
+        double chord = Math.sqrt(squaredChord);
+        double distanceKm = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, chord / 2));
+        return new NearbyHotel(hotels.get(ordinals[position]), distanceKm);
+    }
+
+    /**
+     * Converts coordinates as stored on a hotel to a point on the unit sphere
+     *
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     * @return the point, or null if the coordinates are missing or not valid
+     */
+    private static double[] toPoint(String lat, String lng) {
+        try {
+            return toPoint(Double.parseDouble(lat), Double.parseDouble(lng));
+        } catch (NullPointerException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double[] toPoint(double lat, double lng) {
+        if (Double.isNaN(lat) || Double.isNaN(lng) || Math.abs(lat) > 90 || Math.abs(lng) > 180) {
+            return null;
+        }
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lng);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+}
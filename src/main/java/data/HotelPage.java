@@ -0,0 +1,118 @@
+package data;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of the hotel listing together with what is needed to link to the pages next to it.
+ * The next page is reached with the id of the last hotel on this page as cursor, which stays valid
+ * when hotels are added, because new hotels are listed after the existing ones.
+ */
+public class HotelPage {
+    private final List<Hotel> hotels;
+    private final int number;
+    private final int size;
+    private final int total;
+    private final String nextCursor;
+
+    /**
+     * Creates a page
+     *
+     * @param hotels     hotels on the page
+     * @param number     number of the page, starting at 1
+     * @param size       maximum number of hotels on a page
+     * @param total      number of hotels on all pages
+     * @param nextCursor id of the last hotel on the page, or null if this is the last page
+     */
+    public HotelPage(List<Hotel> hotels, int number, int size, int total, String nextCursor) {
+        this.hotels = hotels;
+        this.number = number;
+        this.size = size;
+        this.total = total;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns a page of a list of hotels that is already in listing order, like the results of a keyword search
+     *
+     * @param hotels all hotels of the listing
+     * @param number number of the page, starting at 1
+     * @param size   maximum number of hotels on the page
+     * @return the page, which is empty if the number is past the last page
+     */
+    public static HotelPage of(List<Hotel> hotels, int number, int size) {
+        long offset = (long) (number - 1) * size;
+        if (offset >= hotels.size()) {
+            return new HotelPage(new ArrayList<>(), number, size, hotels.size(), null);
+        }
+        return fromIndex(hotels, (int) offset, number, size);
+    }
+
+    /**
+     * Returns the page of a list of hotels that follows a hotel
+     *
+     * @param hotels all hotels of the listing
+     * @param cursor id of the last hotel of the previous page
+     * @param size   maximum number of hotels on the page
+     * @return the page after the hotel, or the first page if the hotel is not in the list
+     */
+    public static HotelPage after(List<Hotel> hotels, String cursor, int size) {
+        for (int index = 0; index < hotels.size(); index++) {
+            if (hotels.get(index).getId().equals(cursor)) {
+                return fromIndex(hotels, index + 1, (index + 1) / size + 1, size);
+            }
+        }
+        return of(hotels, 1, size);
+    }
+
+    private static HotelPage fromIndex(List<Hotel> hotels, int start, int number, int size) {
+        int end = Math.min(hotels.size(), start + size);
+        List<Hotel> page = new ArrayList<>(hotels.subList(start, end));
+        String nextCursor = end < hotels.size() && !page.isEmpty() ? page.get(page.size() - 1).getId() : null;
+        return new HotelPage(page, number, size, hotels.size(), nextCursor);
+    }
+
+    public boolean hasPrevious() {
+        return number > 1;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (total + size - 1) / size);
+    }
+
+    //Getters
+    public List<Hotel> getHotels() {
+        return hotels;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Returns the next cursor encoded for use as the value of a URL query parameter
+     *
+     * @return the encoded cursor, or null if this is the last page
+     */
+    public String getEncodedNextCursor() {
+        return nextCursor == null ? null : URLEncoder.encode(nextCursor, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package data;
+
+/**
+ * Rating summary of a hotel: the sum and number of its review ratings
+ * and how many reviews gave each rating from 1 to 5.
+ */
+public class HotelRating {
+    private final String hotelId;
+    private final long ratingSum;
+    private final int ratingCount;
+    private final int[] histogram;
+
+    public HotelRating(String hotelId, long ratingSum, int ratingCount, int[] histogram) {
+        this.hotelId = hotelId;
+        this.ratingSum = ratingSum;
+        this.ratingCount = ratingCount;
+        this.histogram = histogram;
+    }
+
+    //Getters
+    public String getHotelId() {
+        return hotelId;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
+    /**
+     * Returns the number of reviews with the given rating.
+     *
+     * @param rating rating from 1 to 5
+     * @return number of reviews with this rating
+     */
+    public int getCount(int rating) {
+        return histogram[rating - 1];
+    }
+
+    /**
+     * Calculates the average rating of the hotel.
+     *
+     * @return average rating, or 0 if the hotel has no reviews
+     */
+    public double getAverage() {
+        return ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+    }
+}
@@ -0,0 +1,250 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable search index over hotel names, built together with a HotelCatalog snapshot.
+ * Names are split into lower case words. The distinct words are kept in a sorted array with the
+ * sorted ordinals of the hotels that contain them, so every word of a query is matched as a prefix
+ * with a binary search, and hotels must match all words of the query.
+ * Queries that do not match word prefixes, like "ilton" for "Hilton", fall back to a trigram
+ * index, which finds hotels whose name contains the query anywhere.
+ * Results are ranked by how well the name matches: whole words over prefixes, names containing the
+ * query as a phrase, and names starting with the query first, then shorter names.
+ */
+public class HotelSearchIndex {
+    private static final int EXACT_WORD_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int PHRASE_SCORE = 5;
+    private static final int STARTS_WITH_SCORE = 2;
+
+    private final List<Hotel> hotels;
+    private final String[] names;
+    private final String[][] nameTokens;
+    private final String[] tokens;
+    private final int[][] tokenPostings;
+    private final Map<String, int[]> trigramPostings;
+
+    /**
+     * Builds the index
+     *
+     * @param hotels hotels of the catalog; a hotel is identified by its position in this list
+     */
+    public HotelSearchIndex(List<Hotel> hotels) {
+        this.hotels = hotels;
+        this.names = new String[hotels.size()];
+        this.nameTokens = new String[hotels.size()][];
+        TreeMap<String, IntList> tokenIndex = new TreeMap<>();
+        Map<String, IntList> trigramIndex = new HashMap<>();
+        for (int ordinal = 0; ordinal < hotels.size(); ordinal++) {
+            String name = normalize(hotels.get(ordinal).getName());
+            names[ordinal] = name;
+            nameTokens[ordinal] = tokenize(name);
+            for (String token : nameTokens[ordinal]) {
+                tokenIndex.computeIfAbsent(token, t -> new IntList()).addOnce(ordinal);
+            }
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                trigramIndex.computeIfAbsent(name.substring(i, i + 3), t -> new IntList()).addOnce(ordinal);
+            }
+        }
+        this.tokens = tokenIndex.keySet().toArray(new String[0]);
+        this.tokenPostings = new int[tokens.length][];
+        int i = 0;
+        for (IntList postings : tokenIndex.values()) {
+            tokenPostings[i++] = postings.toArray();
+        }
+        this.trigramPostings = new HashMap<>(trigramIndex.size() * 2);
+        for (Map.Entry<String, IntList> entry : trigramIndex.entrySet()) {
+            trigramPostings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Finds the hotels whose name matches the query, best matches first
+     *
+     * @param query one or more words, or a part of a hotel name
+     * @return ranked hotels, or an empty list if nothing matches
+     */
+    public List<Hotel> search(String query) {
+        String phrase = normalize(query).trim();
+        String[] queryTokens = tokenize(phrase);
+        if (queryTokens.length == 0) {
+            return new ArrayList<>();
+        }
+        BitSet matches = matchWordPrefixes(queryTokens);
+        if (matches.isEmpty()) {
+            matches = matchSubstring(phrase);
+        }
+        List<int[]> scored = new ArrayList<>(matches.cardinality());
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+            scored.add(new int[]{ordinal, score(ordinal, queryTokens, phrase)});
+        }
+        scored.sort(Comparator.<int[]>comparingInt(s -> -s[1])
+                .thenComparingInt(s -> names[s[0]].length())
+                .thenComparing(s -> names[s[0]]));
+        List<Hotel> results = new ArrayList<>(scored.size());
+        for (int[] s : scored) {
+            results.add(hotels.get(s[0]));
+        }
+        return results;
+    }
+
+    /**
+     * Finds the hotels that have a word starting with every word of the query
+     *
+     * @param queryTokens words of the query
+     * @return ordinals of the matching hotels
+     */
+    private BitSet matchWordPrefixes(String[] queryTokens) {
+        BitSet result = null;
+        for (String queryToken : queryTokens) {
+            BitSet tokenMatches = new BitSet(hotels.size());
+            int from = firstWithPrefix(queryToken);
+            for (int i = from; i < tokens.length && tokens[i].startsWith(queryToken); i++) {
+                for (int ordinal : tokenPostings[i]) {
+                    tokenMatches.set(ordinal);
+                }
+            }
+            if (result == null) {
+                result = tokenMatches;
+            } else {
+                result.and(tokenMatches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the index of the first word in the sorted word array that is not smaller than the prefix
+     *
+     * @param prefix prefix to look up
+     * @return index of the first word that can start with the prefix
+     */
+    private int firstWithPrefix(String prefix) {
+        int index = Arrays.binarySearch(tokens, prefix);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Finds the hotels whose name contains the phrase, using the trigrams of the phrase to find candidates
+     *
+     * @param phrase normalized query
+     * @return ordinals of the matching hotels
+     */
+    private BitSet matchSubstring(String phrase) {
+        BitSet result = new BitSet(hotels.size());
+        if (phrase.length() < 3) {
+            for (int ordinal = 0; ordinal < names.length; ordinal++) {
+                if (names[ordinal].contains(phrase)) {
+                    result.set(ordinal);
+                }
+            }
+            return result;
+        }
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= phrase.length(); i++) {
+            int[] postings = trigramPostings.get(phrase.substring(i, i + 3));
+            if (postings == null) {
+                return result;
+            }
+            if (candidates == null || postings.length < candidates.length) {
+                candidates = postings;
+            }
+        }
+        for (int ordinal : candidates) {
+            if (names[ordinal].contains(phrase)) {
+                result.set(ordinal);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scores how well a hotel name matches the query
+     *
+     * @param ordinal     hotel to score
+     * @param queryTokens words of the query
+     * @param phrase      normalized query
+     * @return score, higher is better
+     */
+    private int score(int ordinal, String[] queryTokens, String phrase) {
+        int score = 0;
+        for (String queryToken : queryTokens) {
+            int best = 0;
+            for (String token : nameTokens[ordinal]) {
+                if (token.equals(queryToken)) {
+                    best = EXACT_WORD_SCORE;
+                    break;
+                } else if (token.startsWith(queryToken)) {
+                    best = PREFIX_SCORE;
+                }
+            }
+            score += best;
+        }
+        if (names[ordinal].contains(phrase)) {
+            score += PHRASE_SCORE;
+        }
+        if (names[ordinal].startsWith(phrase)) {
+            score += STARTS_WITH_SCORE;
+        }
+        return score;
+    }
+
+    /**
+     * Lower cases a name or query
+     *
+     * @param text text to normalize
+     * @return normalized text
+     */
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits normalized text into words of letters and digits
+     *
+     * @param text normalized text
+     * @return words of the text
+     */
+    static String[] tokenize(String text) {
+        return Arrays.stream(text.split("[^\\p{L}\\p{N}]+")).filter(t -> !t.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * A growable list of hotel ordinals, added in increasing order
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        /**
+         * Adds an ordinal unless it was the last one added
+         *
+         * @param value ordinal to add
+         */
+        void addOnce(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
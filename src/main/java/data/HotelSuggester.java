@@ -0,0 +1,130 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * An immutable prefix structure for completing hotel names, built together with a HotelCatalog snapshot.
+ * It keeps two sorted arrays of keys with the ordinal of the hotel each key belongs to: the lower case
+ * full names, and the rest of each name from the start of every later word ("union square" for
+ * "Hilton Union Square"). A prefix is looked up with a binary search in each array, and the keys
+ * starting with it are next to each other, so a lookup only reads the keys it returns.
+ * Hotels whose name starts with the prefix come first, then hotels with a later word starting with it,
+ * each in alphabetical order.
+ */
+public class HotelSuggester {
+    private final List<Hotel> hotels;
+    private final String[] nameKeys;
+    private final int[] nameOrdinals;
+    private final String[] wordKeys;
+    private final int[] wordOrdinals;
+
+    /**
+     * Builds the prefix arrays
+     *
+     * @param hotels hotels of the catalog; a hotel is identified by its position in this list
+     */
+    public HotelSuggester(List<Hotel> hotels) {
+        this.hotels = hotels;
+        List<Key> names = new ArrayList<>(hotels.size());
+        List<Key> words = new ArrayList<>();
+        for (int ordinal = 0; ordinal < hotels.size(); ordinal++) {
+            String name = HotelSearchIndex.normalize(hotels.get(ordinal).getName()).trim();
+            names.add(new Key(name, ordinal));
+            for (int i = 1; i < name.length(); i++) {
+                if (!Character.isLetterOrDigit(name.charAt(i - 1)) && Character.isLetterOrDigit(name.charAt(i))) {
+                    words.add(new Key(name.substring(i), ordinal));
+                }
+            }
+        }
+        names.sort(null);
+        words.sort(null);
+        this.nameKeys = names.stream().map(k -> k.key).toArray(String[]::new);
+        this.nameOrdinals = names.stream().mapToInt(k -> k.ordinal).toArray();
+        this.wordKeys = words.stream().map(k -> k.key).toArray(String[]::new);
+        this.wordOrdinals = words.stream().mapToInt(k -> k.ordinal).toArray();
+    }
+
+    /**
+     * Returns the hotels whose name, or a word of whose name, starts with the prefix
+     *
+     * @param prefix text typed by the user
+     * @param limit  maximum number of hotels
+     * @return up to limit hotels
+     */
+    public List<Hotel> suggest(String prefix, int limit) {
+        String key = HotelSearchIndex.normalize(prefix).trim();
+        List<Hotel> suggestions = new ArrayList<>(limit);
+        if (key.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        BitSet added = new BitSet(hotels.size());
+        collect(nameKeys, nameOrdinals, key, limit, added, suggestions);
+        collect(wordKeys, wordOrdinals, key, limit, added, suggestions);
+        return suggestions;
+    }
+
+    /**
+     * Adds the hotels of the keys starting with the prefix until the limit is reached
+     *
+     * @param keys        sorted keys
+     * @param ordinals    hotel of each key
+     * @param prefix      normalized prefix
+     * @param limit       maximum number of suggestions
+     * @param added       hotels that were already suggested
+     * @param suggestions list of suggestions to add to
+     */
+    private void collect(String[] keys, int[] ordinals, String prefix, int limit, BitSet added, List<Hotel> suggestions) {
+        for (int i = lowerBound(keys, prefix); i < keys.length && suggestions.size() < limit; i++) {
+            if (!keys[i].startsWith(prefix)) {
+                return;
+            }
+            if (!added.get(ordinals[i])) {
+                added.set(ordinals[i]);
+                suggestions.add(hotels.get(ordinals[i]));
+            }
+        }
+    }
+
+    /**
+     * Finds the first key that is not smaller than the prefix; keys can repeat, so this is a lower bound
+     * rather than Arrays.binarySearch, which may return any of the equal keys
+     *
+     * @param keys   sorted keys
+     * @param prefix prefix to look up
+     * @return index of the first key that can start with the prefix
+     */
+    private static int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A key with the hotel it belongs to, sorted by key
+     */
+    private static class Key implements Comparable<Key> {
+        private final String key;
+        private final int ordinal;
+
+        Key(String key, int ordinal) {
+            this.key = key;
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int compare = key.compareTo(other.key);
+            return compare != 0 ? compare : Integer.compare(ordinal, other.ordinal);
+        }
+    }
+}
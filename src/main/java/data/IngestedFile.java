@@ -0,0 +1,47 @@
+package data;
+
+/**
+ * A dataset file recorded in the ingest manifest: its path, size, modification time
+ * and the SHA-256 hash of its content when it was loaded.
+ */
+public class IngestedFile {
+    private final String path;
+    private final long size;
+    private final long modified;
+    private final String hash;
+
+    public IngestedFile(String path, long size, long modified, String hash) {
+        this.path = path;
+        this.size = size;
+        this.modified = modified;
+        this.hash = hash;
+    }
+
+    //Getters
+    public String getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Checks if the file still has the size and modification time it had when it was ingested.
+     *
+     * @param size     current size of the file
+     * @param modified current modification time of the file in milliseconds
+     * @return true if neither changed
+     */
+    public boolean isUnchanged(long size, long modified) {
+        return this.size == size && this.modified == modified;
+    }
+}
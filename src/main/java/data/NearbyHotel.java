@@ -0,0 +1,32 @@
+package data;
+
+/**
+ * A hotel found by a HotelGeoIndex query, with its distance from the query point.
+ */
+public class NearbyHotel {
+    private final Hotel hotel;
+    private final double distanceKm;
+
+    public NearbyHotel(Hotel hotel, double distanceKm) {
+        this.hotel = hotel;
+        this.distanceKm = distanceKm;
+    }
+
+    //Getters
+    public Hotel getHotel() {
+        return hotel;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    /**
+     * Formats the distance for display
+     *
+     * @return distance in km with one decimal
+     */
+    public String getFormattedDistance() {
+        return String.format("%.1f km", distanceKm);
+    }
+}
@@ -0,0 +1,65 @@
+package data;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Position of a review in the list of reviews of a hotel, which is sorted by date and reviewId.
+ * It is sent to clients as an opaque token and used for keyset pagination.
+ */
+public class ReviewCursor {
+    private final Timestamp date;
+    private final int reviewId;
+
+    public ReviewCursor(Timestamp date, int reviewId) {
+        this.date = date;
+        this.reviewId = reviewId;
+    }
+
+    /**
+     * Creates the cursor pointing at the given review.
+     *
+     * @param review review read from the database
+     * @return cursor of the review
+     */
+    public static ReviewCursor of(Review review) {
+        return new ReviewCursor(Timestamp.valueOf(review.getDate()), Integer.parseInt(review.getReviewId()));
+    }
+
+    /**
+     * Decodes a cursor token created by encode().
+     *
+     * @param token cursor token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static ReviewCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new ReviewCursor(Timestamp.valueOf(value.substring(0, separator)), Integer.parseInt(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor " + token, e);
+        }
+    }
+
+    /**
+     * Encodes the cursor as a url-safe token.
+     *
+     * @return cursor token
+     */
+    public String encode() {
+        String value = date + "|" + reviewId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //Getters
+    public Timestamp getDate() {
+        return date;
+    }
+
+    public int getReviewId() {
+        return reviewId;
+    }
+}
@@ -0,0 +1,32 @@
+package data;
+
+import java.util.List;
+
+/**
+ * A page of reviews for a hotel together with the cursors of the pages next to it.
+ * A cursor is null when there is no page in that direction.
+ */
+public class ReviewPage {
+    private final List<Review> reviews;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public ReviewPage(List<Review> reviews, String nextCursor, String prevCursor) {
+        this.reviews = reviews;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    //Getters
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+}
@@ -0,0 +1,29 @@
+package data;
+
+/**
+ * A review found by a ReviewSearchIndex query, with its BM25 score.
+ */
+public class ReviewSearchHit {
+    private final int reviewId;
+    private final String hotelId;
+    private final double score;
+
+    public ReviewSearchHit(int reviewId, String hotelId, double score) {
+        this.reviewId = reviewId;
+        this.hotelId = hotelId;
+        this.score = score;
+    }
+
+    //Getters
+    public int getReviewId() {
+        return reviewId;
+    }
+
+    public String getHotelId() {
+        return hotelId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
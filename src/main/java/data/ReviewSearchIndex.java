@@ -0,0 +1,584 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index over the titles and texts of the reviews, ranked with BM25.
+ * Every indexed review gets a document ordinal in the order it was added, and the postings of a word
+ * list the ordinals of the reviews containing it with the number of times it occurs, encoded as
+ * varint deltas in a byte array. New reviews only append to the postings. Editing a review marks its
+ * old document as deleted and adds it again; deleted documents are skipped by queries and dropped
+ * by a compaction once they make up a quarter of the index.
+ * Every SKIP_INTERVAL documents the postings record where the next block starts, so a query can jump
+ * over blocks without decoding them, and each hotel keeps the list of its documents, so a query limited
+ * to a hotel only looks at the blocks that can hold the hotel's reviews. Queries keep the best results
+ * in a heap and use MaxScore: a word whose best possible score cannot lift a review into the heap on its
+ * own is only read for the documents that other words matched.
+ * Reviews are looked up by their database reviewId, which is auto increment, so the document of a
+ * review is kept in an array indexed by reviewId.
+ * Queries run under a read lock and changes under a write lock, so searches can run in parallel.
+ * The index can be filled from a snapshot of the database while reviews are changed: between
+ * startSnapshot() and finishSnapshot(), addFromSnapshot() skips the reviews that add() or remove()
+ * changed in the meantime, because the snapshot row may be older than that change.
+ */
+public class ReviewSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 2;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int MIN_COMPACT_DELETED = 1024;
+    private static final int SKIP_INTERVAL = 128;
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "but", "by",
+            "for", "i", "if", "in", "into", "is", "it", "my", "of", "on", "or", "our", "that", "the", "their",
+            "there", "they", "this", "to", "was", "we", "were", "with");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> hotelOrdinals = new HashMap<>();
+    private final List<String> hotelIds = new ArrayList<>();
+    private final List<DocList> hotelDocs = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private BitSet changedDuringSnapshot;
+    private int[] docReviewIds = new int[1024];
+    private int[] docHotels = new int[1024];
+    private int[] docLengths = new int[1024];
+    private int[] docByReviewId = new int[1024];
+    private int docCount = 0;
+    private int deletedCount = 0;
+    private long totalLength = 0;
+
+    /**
+     * Adds a review to the index, replacing it if it was indexed before
+     *
+     * @param reviewId database id of the review
+     * @param hotelId  hotel of the review
+     * @param title    title of the review, can be null
+     * @param text     text of the review, can be null
+     */
+    public void add(int reviewId, String hotelId, String title, String text) {
+        addDocument(reviewId, hotelId, title, text, false);
+    }
+
+    /**
+     * Adds a review read from a snapshot of the database, unless it was changed since the snapshot started
+     *
+     * @param reviewId database id of the review
+     * @param hotelId  hotel of the review
+     * @param title    title of the review, can be null
+     * @param text     text of the review, can be null
+     * @return true if the review was added
+     */
+    public boolean addFromSnapshot(int reviewId, String hotelId, String title, String text) {
+        return addDocument(reviewId, hotelId, title, text, true);
+    }
+
+    /**
+     * Starts recording the reviews that are changed, so addFromSnapshot() does not overwrite them
+     */
+    public void startSnapshot() {
+        lock.writeLock().lock();
+        try {
+            changedDuringSnapshot = new BitSet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops recording the changed reviews
+     */
+    public void finishSnapshot() {
+        lock.writeLock().lock();
+        try {
+            changedDuringSnapshot = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a review, replacing it if it was indexed before
+     *
+     * @param fromSnapshot true if the review was read from a snapshot and must not replace a later change
+     * @return true if the review was added
+     */
+    private boolean addDocument(int reviewId, String hotelId, String title, String text, boolean fromSnapshot) {
+        if (reviewId < 0) {
+            return false;
+        }
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = countTerms(title, TITLE_WEIGHT, frequencies) + countTerms(text, 1, frequencies);
+
+        lock.writeLock().lock();
+        try {
+            if (changedDuringSnapshot != null) {
+                if (fromSnapshot && changedDuringSnapshot.get(reviewId)) {
+                    return false;
+                }
+                if (!fromSnapshot) {
+                    changedDuringSnapshot.set(reviewId);
+                }
+            }
+            removeDocument(reviewId);
+            if (docCount == docReviewIds.length) {
+                docReviewIds = Arrays.copyOf(docReviewIds, docCount * 2);
+                docHotels = Arrays.copyOf(docHotels, docCount * 2);
+                docLengths = Arrays.copyOf(docLengths, docCount * 2);
+            }
+            if (reviewId >= docByReviewId.length) {
+                docByReviewId = Arrays.copyOf(docByReviewId, Math.max(reviewId + 1, docByReviewId.length * 2));
+            }
+            int doc = docCount++;
+            docReviewIds[doc] = reviewId;
+            docHotels[doc] = hotelOrdinals.computeIfAbsent(hotelId, id -> {
+                hotelIds.add(id);
+                hotelDocs.add(new DocList());
+                return hotelIds.size() - 1;
+            });
+            hotelDocs.get(docHotels[doc]).add(doc);
+            docLengths[doc] = length;
+            docByReviewId[reviewId] = doc + 1;
+            totalLength += length;
+            for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue()[0]);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a review from the index
+     *
+     * @param reviewId database id of the review
+     */
+    public void remove(int reviewId) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringSnapshot != null && reviewId >= 0) {
+                changedDuringSnapshot.set(reviewId);
+            }
+            removeDocument(reviewId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the reviews that best match the query
+     *
+     * @param query   words to look for
+     * @param hotelId hotel to search in, or null to search all reviews
+     * @param limit   maximum number of results
+     * @return matching reviews, best first
+     */
+    public List<ReviewSearchHit> search(String query, String hotelId, int limit) {
+        List<ReviewSearchHit> results = new ArrayList<>();
+        Set<String> terms = new LinkedHashSet<>();
+        for (String token : HotelSearchIndex.tokenize(HotelSearchIndex.normalize(query))) {
+            if (isIndexed(token) && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(token);
+            }
+        }
+        if (terms.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        PriorityQueue<ReviewSearchHit> top = new PriorityQueue<>(Math.min(limit, 1024) + 1,
+                Comparator.comparingDouble(ReviewSearchHit::getScore).thenComparingInt(ReviewSearchHit::getReviewId));
+        lock.readLock().lock();
+        try {
+            int live = docCount - deletedCount;
+            boolean filtered = hotelId != null && !hotelId.isEmpty();
+            int hotel = filtered ? hotelOrdinals.getOrDefault(hotelId, -1) : -1;
+            if (live == 0 || (filtered && hotel < 0)) {
+                return results;
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / live);
+            List<PostingsCursor> cursors = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings termPostings = postings.get(term);
+                if (termPostings != null) {
+                    int docFreq = Math.min(termPostings.docFreq, live);
+                    double idf = Math.log(1 + (live - docFreq + 0.5) / (docFreq + 0.5));
+                    cursors.add(new PostingsCursor(termPostings, idf));
+                }
+            }
+            // words with the lowest upper bound first; maxScores[i] is the most words 0..i can add together
+            cursors.sort(Comparator.comparingDouble(cursor -> cursor.maxScore));
+            double[] maxScores = new double[cursors.size()];
+            double sum = 0;
+            for (int i = 0; i < cursors.size(); i++) {
+                sum += cursors.get(i).maxScore;
+                maxScores[i] = sum;
+            }
+            DocList docs = filtered ? hotelDocs.get(hotel) : null;
+            int hotelPosition = 0;
+            int essential = 0;
+            int target = 0;
+
+            while (true) {
+                // a document has to contain one of the essential words to get into the results
+                int doc = Integer.MAX_VALUE;
+                for (int i = essential; i < cursors.size(); i++) {
+                    PostingsCursor cursor = cursors.get(i);
+                    cursor.advance(target);
+                    doc = Math.min(doc, cursor.doc);
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+                if (docs != null) {
+                    hotelPosition = docs.indexOf(doc, hotelPosition);
+                    if (hotelPosition == docs.size) {
+                        break;
+                    }
+                    if (docs.docs[hotelPosition] != doc) {
+                        target = docs.docs[hotelPosition];
+                        continue;
+                    }
+                }
+                target = doc + 1;
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                double norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                double score = 0;
+                for (int i = essential; i < cursors.size(); i++) {
+                    score += cursors.get(i).score(doc, norm);
+                }
+                double threshold = top.size() < limit ? -1 : top.peek().getScore();
+                for (int i = essential - 1; i >= 0 && score + maxScores[i] > threshold; i--) {
+                    PostingsCursor cursor = cursors.get(i);
+                    cursor.advance(doc);
+                    score += cursor.score(doc, norm);
+                }
+                if (score > threshold) {
+                    top.add(new ReviewSearchHit(docReviewIds[doc], hotelIds.get(docHotels[doc]), score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                    if (top.size() == limit) {
+                        while (essential < cursors.size() && maxScores[essential] <= top.peek().getScore()) {
+                            essential++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        while (!top.isEmpty()) {
+            results.add(top.poll());
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Returns the number of reviews in the index
+     *
+     * @return number of indexed reviews
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a summary of the size of the index
+     *
+     * @return index summary
+     */
+    public String getSummary() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Postings termPostings : postings.values()) {
+                bytes += termPostings.size;
+            }
+            return String.format("Review index: %d reviews, %d words, %.1f MB of postings, %d deleted",
+                    docCount - deletedCount, postings.size(), bytes / (1024.0 * 1024.0), deletedCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the document of a review as deleted, and compacts the index when enough documents are deleted.
+     * Must be called with the write lock held.
+     *
+     * @param reviewId database id of the review
+     */
+    private void removeDocument(int reviewId) {
+        if (reviewId < 0 || reviewId >= docByReviewId.length || docByReviewId[reviewId] == 0) {
+            return;
+        }
+        int doc = docByReviewId[reviewId] - 1;
+        docByReviewId[reviewId] = 0;
+        deleted.set(doc);
+        deletedCount++;
+        totalLength -= docLengths[doc];
+        if (deletedCount >= MIN_COMPACT_DELETED && deletedCount * 4L >= docCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Drops the deleted documents from the postings and gives the remaining documents consecutive ordinals.
+     * Ordinals keep their order, so the postings can be rewritten without sorting.
+     * Must be called with the write lock held.
+     */
+    private void compact() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = live;
+                docReviewIds[live] = docReviewIds[doc];
+                docHotels[live] = docHotels[doc];
+                docLengths[live] = docLengths[doc];
+                docByReviewId[docReviewIds[live]] = live + 1;
+                live++;
+            }
+        }
+        for (DocList docs : hotelDocs) {
+            docs.size = 0;
+        }
+        for (int doc = 0; doc < live; doc++) {
+            hotelDocs.get(docHotels[doc]).add(doc);
+        }
+        postings.replaceAll((term, termPostings) -> termPostings.compact(remap));
+        postings.values().removeIf(termPostings -> termPostings.docFreq == 0);
+        docCount = live;
+        deletedCount = 0;
+        deleted.clear();
+    }
+
+    /**
+     * Counts the indexed words of a title or text
+     *
+     * @param text        text to count
+     * @param weight      how many times every occurrence is counted
+     * @param frequencies map from word to its count, updated in place
+     * @return number of words counted, multiplied by the weight
+     */
+    private static int countTerms(String text, int weight, Map<String, int[]> frequencies) {
+        int length = 0;
+        for (String token : HotelSearchIndex.tokenize(HotelSearchIndex.normalize(text))) {
+            if (isIndexed(token)) {
+                frequencies.computeIfAbsent(token, t -> new int[1])[0] += weight;
+                length += weight;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Checks if a word is indexed; stop words and very long words are not
+     *
+     * @param token normalized word
+     * @return true if the word is indexed
+     */
+    private static boolean isIndexed(String token) {
+        return token.length() <= MAX_TERM_LENGTH && !STOP_WORDS.contains(token);
+    }
+
+    /**
+     * The postings of one word: pairs of (document ordinal delta, frequency) encoded as varints.
+     * Block k (from 1) starts after the first k * SKIP_INTERVAL documents, at skipPositions[k - 1]; the deltas
+     * of the block are counted from skipDocs[k - 1], the last document of the block before.
+     */
+    private static class Postings {
+        private byte[] data = new byte[8];
+        private int size = 0;
+        private int lastDoc = -1;
+        private int docFreq = 0;
+        private int maxFrequency = 0;
+        private int[] skipDocs;
+        private int[] skipPositions;
+        private int skipCount = 0;
+
+        /**
+         * Appends a document, which must have a higher ordinal than the documents added before
+         *
+         * @param doc       document ordinal
+         * @param frequency number of occurrences of the word in the document
+         */
+        void add(int doc, int frequency) {
+            if (size + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + 10, data.length + (data.length >> 1)));
+            }
+            if (docFreq > 0 && docFreq % SKIP_INTERVAL == 0) {
+                if (skipDocs == null || skipCount == skipDocs.length) {
+                    int length = skipDocs == null ? 4 : skipCount * 2;
+                    skipDocs = skipDocs == null ? new int[length] : Arrays.copyOf(skipDocs, length);
+                    skipPositions = skipPositions == null ? new int[length] : Arrays.copyOf(skipPositions, length);
+                }
+                skipDocs[skipCount] = lastDoc;
+                skipPositions[skipCount] = size;
+                skipCount++;
+            }
+            writeVarint(doc - lastDoc);
+            writeVarint(frequency);
+            lastDoc = doc;
+            docFreq++;
+            maxFrequency = Math.max(maxFrequency, frequency);
+        }
+
+        /**
+         * Builds the postings with the deleted documents left out
+         *
+         * @param remap new ordinal of every document, or -1 for deleted documents
+         * @return compacted postings
+         */
+        Postings compact(int[] remap) {
+            Postings compacted = new Postings();
+            PostingsCursor cursor = new PostingsCursor(this, 0);
+            while (cursor.next()) {
+                if (remap[cursor.doc] >= 0) {
+                    compacted.add(remap[cursor.doc], cursor.frequency);
+                }
+            }
+            compacted.data = Arrays.copyOf(compacted.data, compacted.size);
+            if (compacted.skipDocs != null) {
+                compacted.skipDocs = Arrays.copyOf(compacted.skipDocs, compacted.skipCount);
+                compacted.skipPositions = Arrays.copyOf(compacted.skipPositions, compacted.skipCount);
+            }
+            return compacted;
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Reads the postings of a word one document at a time, jumping over the blocks before a target document
+     */
+    private static class PostingsCursor {
+        private final Postings postings;
+        private final double idf;
+        // highest score the word can add to a document: the most frequent occurrence in the shortest document
+        private final double maxScore;
+        private int position = 0;
+        private int read = 0;
+        private int doc = -1;
+        private int frequency = 0;
+
+        PostingsCursor(Postings postings, double idf) {
+            this.postings = postings;
+            this.idf = idf;
+            this.maxScore = idf * postings.maxFrequency * (K1 + 1) / (postings.maxFrequency + K1 * (1 - B));
+        }
+
+        /**
+         * Moves to the first document at or after the target, skipping the blocks that end before it
+         *
+         * @param target document ordinal
+         */
+        void advance(int target) {
+            if (doc >= target) {
+                return;
+            }
+            int from = read / SKIP_INTERVAL;
+            if (from < postings.skipCount && postings.skipDocs[from] < target) {
+                int found = Arrays.binarySearch(postings.skipDocs, from, postings.skipCount, target);
+                int block = (found >= 0 ? found : -found - 1) - 1;
+                position = postings.skipPositions[block];
+                doc = postings.skipDocs[block];
+                read = (block + 1) * SKIP_INTERVAL;
+            }
+            while (doc < target && next()) {
+            }
+        }
+
+        /**
+         * Calculates the BM25 score the word adds to a document
+         *
+         * @param target document ordinal, which the cursor must have been advanced to
+         * @param norm   length normalization of the document
+         * @return score, or 0 if the document does not contain the word
+         */
+        double score(int target, double norm) {
+            return doc == target ? idf * frequency * (K1 + 1) / (frequency + norm) : 0;
+        }
+
+        /**
+         * Moves to the next document; doc is Integer.MAX_VALUE once all documents are read
+         *
+         * @return true if there was a next document
+         */
+        boolean next() {
+            if (position >= postings.size) {
+                doc = Integer.MAX_VALUE;
+                return false;
+            }
+            doc += readVarint();
+            frequency = readVarint();
+            read++;
+            return true;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings.data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * A growable list of document ordinals in ascending order
+     */
+    private static class DocList {
+        private int[] docs = new int[4];
+        private int size = 0;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        /**
+         * Finds the first document at or after the target, starting the search at a position
+         *
+         * @param target document ordinal
+         * @param from   position to start at
+         * @return position of the document, or size if every document is before the target
+         */
+        int indexOf(int target, int from) {
+            int found = Arrays.binarySearch(docs, from, size, target);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+}
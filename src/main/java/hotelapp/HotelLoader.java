@@ -5,7 +5,6 @@ import parser.HotelParser;
 import server.DatabaseHandler;
 import server.HotelDatabaseHandler;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -27,30 +26,20 @@ public class HotelLoader {
 
         List<Hotel> list = hotelParser.jsonParser(fileName);
         if (list != null) {
-            for (Hotel hotel : list) {
-                hotelDatabaseHandler.registerHotel(hotel);
-            }
+            hotelDatabaseHandler.registerHotels(list);
         }
 
     }
 
     /**
-     * Finds hotels that have the given keyword in their name
+     * Finds hotels that have the given keyword in their name, using the search index of the hotel catalog.
+     * Every word of the keyword has to start a word of the name, or the keyword has to appear in the name;
+     * the best matches come first.
      *
      * @param keyword keyword to search hotels name
      * @return list of hotels that has this keyword in their name
      */
     public List<Hotel> findHotelsByKeyword(String keyword) {
-        List<String> hotelsName = hotelDatabaseHandler.getAllHotelsName();
-        List<Hotel> hotelsWithKeyword = new ArrayList<>();
-        for (String hotelName : hotelsName) {
-            if (hotelName.toLowerCase().contains(keyword.toLowerCase())) {
-                Hotel hotel = hotelDatabaseHandler.getHotelByName(hotelName);
-                if (hotel != null) {
-                    hotelsWithKeyword.add(hotel);
-                }
-            }
-        }
-        return hotelsWithKeyword;
+        return hotelDatabaseHandler.searchHotels(keyword);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+package hotelapp;
+
+import data.IngestedFile;
+import server.IngestDatabaseHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which dataset files have to be loaded, based on the manifest of files that were ingested before.
+ * A file whose size and modification time did not change is skipped without being read. A file that
+ * changed on disk is hashed, and it is only parsed again if its content hash differs from the manifest.
+ * Files that were loaded are recorded by save() once all their reviews have been written, so the same
+ * manifest can be used again for later incremental loads.
+ */
+public class IngestManifest {
+    private final IngestDatabaseHandler ingestDatabaseHandler = IngestDatabaseHandler.getInstance();
+    private final Map<String, IngestedFile> ingestedFiles;
+    private final Queue<IngestedFile> loadedFiles = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger skippedFiles = new AtomicInteger();
+
+    /**
+     * Reads the manifest from the database
+     *
+     * @param reloadAll true to ignore the manifest and load every file again
+     */
+    public IngestManifest(boolean reloadAll) {
+        this.ingestedFiles = new ConcurrentHashMap<>();
+        if (!reloadAll) {
+            ingestedFiles.putAll(ingestDatabaseHandler.getIngestedFiles());
+            if (ingestedFiles.isEmpty()) {
+                // first start, or first start after upgrading: reviews stored before are matched, not duplicated
+                System.out.println("No review files are recorded yet, every file is loaded and recorded once");
+            }
+        }
+    }
+
+    /**
+     * Checks if a file has to be loaded without reading it.
+     *
+     * @param file       path of the file
+     * @param attributes attributes of the file
+     * @return false if the file was ingested before and its size and modification time did not change
+     */
+    public boolean needsLoading(Path file, BasicFileAttributes attributes) {
+        IngestedFile ingested = ingestedFiles.get(key(file));
+        if (ingested != null && ingested.isUnchanged(attributes.size(), attributes.lastModifiedTime().toMillis())) {
+            skippedFiles.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the current size, modification time and content hash of a file.
+     *
+     * @param file path of the file
+     * @return the file as it would be recorded in the manifest
+     * @throws IOException if the file could not be read
+     */
+    public IngestedFile describe(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new IngestedFile(key(file), attributes.size(), attributes.lastModifiedTime().toMillis(), hash(file));
+    }
+
+    /**
+     * Checks if a file that changed on disk still has the content that was ingested.
+     * Such a file does not have to be parsed again, only its manifest entry is updated.
+     *
+     * @param file current state of the file
+     * @return true if the content hash matches the manifest
+     */
+    public boolean hasSameContent(IngestedFile file) {
+        IngestedFile ingested = ingestedFiles.get(file.getPath());
+        if (ingested != null && ingested.getHash().equals(file.getHash())) {
+            skippedFiles.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Marks a file as loaded; it is recorded in the manifest by save().
+     *
+     * @param file loaded file
+     */
+    public void markLoaded(IngestedFile file) {
+        loadedFiles.add(file);
+    }
+
+    /**
+     * Records all files marked as loaded in the manifest.
+     */
+    public void save() {
+        List<IngestedFile> files = new ArrayList<>(loadedFiles);
+        if (files.isEmpty()) {
+            return;
+        }
+        try {
+            ingestDatabaseHandler.registerIngestedFiles(files);
+            loadedFiles.removeAll(files);
+            for (IngestedFile file : files) {
+                ingestedFiles.put(file.getPath(), file);
+            }
+        } catch (SQLException e) {
+            System.out.println("Could not update the ingest manifest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the files marked as loaded without recording them, so they are loaded again next time.
+     */
+    public void discard() {
+        loadedFiles.clear();
+    }
+
+    public int getSkippedFiles() {
+        return skippedFiles.get();
+    }
+
+    /**
+     * Returns the key of a file in the manifest
+     *
+     * @param file path of the file
+     * @return absolute normalized path
+     */
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the content of a file
+     *
+     * @param file path of the file
+     * @return hex encoded hash
+     * @throws IOException if the file could not be read
+     */
+    private static String hash(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package hotelapp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the review load that runs in the background while the server already serves requests.
+ * The counters are updated by the stages of the ReviewDirectoryTraverser and read by the status endpoint
+ * and the hotel pages.
+ * A hotel is partial while the load is running and some of its reviews may still be missing: until every
+ * file has been parsed any hotel may still get reviews, and after that only the hotels whose reviews were
+ * found in the loaded files wait for the writers.
+ */
+public class IngestProgress {
+    public enum State {NOT_STARTED, RUNNING, DONE, FAILED}
+
+    private volatile State state = State.NOT_STARTED;
+    private volatile boolean walkFinished = false;
+    private volatile boolean parseFinished = false;
+    private volatile long startMillis;
+    private volatile long endMillis;
+    private final AtomicLong filesFound = new AtomicLong();
+    private final AtomicLong filesDone = new AtomicLong();
+    private final AtomicLong reviewsParsed = new AtomicLong();
+    private final AtomicLong reviewsLoaded = new AtomicLong();
+    private final Set<String> loadingHotels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Marks the start of the load
+     */
+    public void start() {
+        startMillis = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    /**
+     * Marks the end of the load
+     *
+     * @param succeeded false if the load stopped because of an error
+     */
+    public void finish(boolean succeeded) {
+        endMillis = System.currentTimeMillis();
+        state = succeeded ? State.DONE : State.FAILED;
+        loadingHotels.clear();
+    }
+
+    void fileFound() {
+        filesFound.incrementAndGet();
+    }
+
+    void fileDone() {
+        filesDone.incrementAndGet();
+    }
+
+    void walkFinished() {
+        walkFinished = true;
+    }
+
+    void parseFinished() {
+        parseFinished = true;
+    }
+
+    /**
+     * Records a parsed review
+     *
+     * @param hotelId hotel of the review
+     */
+    void reviewParsed(String hotelId) {
+        reviewsParsed.incrementAndGet();
+        loadingHotels.add(hotelId);
+    }
+
+    void reviewsLoaded(int count) {
+        reviewsLoaded.addAndGet(count);
+    }
+
+    /**
+     * Checks if reviews of a hotel may still be missing because the load is running
+     *
+     * @param hotelId id of the hotel
+     * @return true if the hotel page should be marked as partial
+     */
+    public boolean isPartial(String hotelId) {
+        if (state != State.RUNNING) {
+            return false;
+        }
+        return !parseFinished || loadingHotels.contains(hotelId);
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    /**
+     * Checks if the load finished successfully. A load that has not started yet or that failed is not ready.
+     *
+     * @return true if every review file was loaded
+     */
+    public boolean isReady() {
+        return state == State.DONE;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getFilesFound() {
+        return filesFound.get();
+    }
+
+    public long getFilesDone() {
+        return filesDone.get();
+    }
+
+    public long getReviewsParsed() {
+        return reviewsParsed.get();
+    }
+
+    public long getReviewsLoaded() {
+        return reviewsLoaded.get();
+    }
+
+    /**
+     * Returns the time the load has been running
+     *
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        if (state == State.NOT_STARTED) {
+            return 0;
+        }
+        return (state == State.RUNNING ? System.currentTimeMillis() : endMillis) - startMillis;
+    }
+
+    /**
+     * Estimates the remaining time from the rate at which files were finished so far.
+     * The estimate is only known once the directory walk has found every file.
+     *
+     * @return estimated remaining time in milliseconds, or -1 if it is not known yet
+     */
+    public long getEtaMillis() {
+        if (state != State.RUNNING) {
+            return 0;
+        }
+        long done = filesDone.get();
+        if (!walkFinished || done == 0) {
+            return -1;
+        }
+        return getElapsedMillis() * (filesFound.get() - done) / done;
+    }
+
+    /**
+     * Builds the status shown by the status endpoint
+     *
+     * @return status fields in display order
+     */
+    public Map<String, Object> toStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("ready", isReady());
+        status.put("filesFound", filesFound.get());
+        status.put("filesDone", filesDone.get());
+        status.put("walkFinished", walkFinished);
+        status.put("reviewsParsed", reviewsParsed.get());
+        status.put("reviewsLoaded", reviewsLoaded.get());
+        status.put("elapsedSeconds", getElapsedMillis() / 1000.0);
+        long eta = getEtaMillis();
+        status.put("etaSeconds", eta < 0 ? null : eta / 1000.0);
+        return status;
+    }
+}
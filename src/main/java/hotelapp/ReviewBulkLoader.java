@@ -0,0 +1,172 @@
+package hotelapp;
+
+import data.Review;
+import server.DatabaseHandler;
+import server.ReviewsDatabaseHandler;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Collects dataset reviews from the ingest workers and writes them to the database in JDBC batches.
+ * A batch is written as soon as batchSize reviews are collected; finish() writes the rest
+ * and prints a summary of the load. Every batch that was written is passed to the listener.
+ */
+public class ReviewBulkLoader {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String DEADLOCK_STATE = "40001";
+    private final ReviewsDatabaseHandler reviewsDatabaseHandler = ReviewsDatabaseHandler.getInstance();
+    private final int batchSize;
+    private final Consumer<List<Review>> listener;
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<Review> buffer = new ArrayList<>();
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private volatile long startNanos = 0;
+
+    public ReviewBulkLoader(Consumer<List<Review>> listener) {
+        this(Integer.parseInt(DatabaseHandler.getInstance().getProperty("ingest.batchSize", "500")), listener);
+    }
+
+    public ReviewBulkLoader(int batchSize, Consumer<List<Review>> listener) {
+        this.batchSize = Math.max(1, batchSize);
+        this.listener = listener;
+    }
+
+    /**
+     * Adds reviews to the current batch and writes every batch that is full.
+     *
+     * @param reviews reviews parsed from a dataset file
+     */
+    public void add(List<Review> reviews) {
+        List<List<Review>> fullBatches = new ArrayList<>();
+        lock.lock();
+        try {
+            if (startNanos == 0) {
+                startNanos = System.nanoTime();
+            }
+            for (Review review : reviews) {
+                buffer.add(review);
+                if (buffer.size() >= batchSize) {
+                    fullBatches.add(buffer);
+                    buffer = new ArrayList<>(batchSize);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (List<Review> batch : fullBatches) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Writes the reviews that are left in the current batch and prints the load summary.
+     */
+    public void finish() {
+        List<Review> rest;
+        lock.lock();
+        try {
+            rest = buffer;
+            buffer = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+        System.out.println(getSummary());
+    }
+
+    /**
+     * Writes one batch of reviews, outside the lock so several workers can write at the same time.
+     *
+     * @param batch reviews to write
+     */
+    private void write(List<Review> batch) {
+        long start = System.nanoTime();
+        try {
+            writeWithRetry(batch);
+            rowsWritten.addAndGet(batch.size());
+            batchesWritten.incrementAndGet();
+        } catch (SQLException e) {
+            rowsFailed.addAndGet(batch.size());
+            System.out.println("Failed to write a batch of " + batch.size() + " reviews: " + e.getMessage());
+            return;
+        } finally {
+            writeNanos.addAndGet(System.nanoTime() - start);
+        }
+        listener.accept(batch);
+    }
+
+    /**
+     * Writes one batch, retrying it when the database rolled it back because of a deadlock with
+     * another writer upserting reviews at the same time.
+     *
+     * @param batch reviews to write
+     * @throws SQLException if the batch could not be written
+     */
+    private void writeWithRetry(List<Review> batch) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                reviewsDatabaseHandler.registerDatasetReviews(batch);
+                return;
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS || !isDeadlock(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the batch was rolled back because of a deadlock. A failed batch reports the
+     * deadlock either directly or as the cause of a BatchUpdateException.
+     *
+     * @param e exception thrown by the batch
+     * @return true if the batch can be retried
+     */
+    private static boolean isDeadlock(SQLException e) {
+        Throwable cause = e.getCause();
+        return e instanceof SQLTransactionRollbackException || DEADLOCK_STATE.equals(e.getSQLState())
+                || cause instanceof SQLTransactionRollbackException;
+    }
+
+    /**
+     * Calculates the number of reviews written per second since the first review was added.
+     *
+     * @return throughput in rows per second
+     */
+    public double getRowsPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsed == 0 ? 0.0 : rowsWritten.get() / (elapsed / 1_000_000_000.0);
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    /**
+     * Builds the summary of the load
+     *
+     * @return load summary
+     */
+    public String getSummary() {
+        double seconds = startNanos == 0 ? 0.0 : (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return String.format("Loaded %d reviews in %d batches (%d failed) in %.2fs: %.0f rows/s, %.2fs spent writing",
+                rowsWritten.get(), batchesWritten.get(), rowsFailed.get(), seconds, getRowsPerSecond(),
+                writeNanos.get() / 1_000_000_000.0);
+    }
+}
@@ -1,15 +1,21 @@
 package hotelapp;
 
 import data.Review;
+import data.ReviewCursor;
+import data.ReviewPage;
+import data.ReviewSearchHit;
+import data.ReviewSearchIndex;
 import server.DatabaseHandler;
 import server.HotelDatabaseHandler;
 import server.ReviewsDatabaseHandler;
 import server.UserDatabaseHandler;
 
+import java.sql.SQLException;
 import java.util.*;
 
 /**
  * This class is responsible for loading, storing, and retrieving reviews for hotels.
+ * It can be shared by threads; the reviews are kept in the database and the search index has its own lock.
  */
 public class ReviewData {
 
@@ -17,6 +23,10 @@ public class ReviewData {
     private final UserDatabaseHandler userDatabaseHandler=UserDatabaseHandler.getInstance();
     private final ReviewsDatabaseHandler reviewsDatabaseHandler=ReviewsDatabaseHandler.getInstance();
     private final HotelDatabaseHandler hotelDatabaseHandler= HotelDatabaseHandler.getInstance();
+    private final ReviewSearchIndex searchIndex = new ReviewSearchIndex();
+    private final ReviewBulkLoader bulkLoader = new ReviewBulkLoader(this::indexDatasetReviews);
+    private final UserProvisioner userProvisioner = new UserProvisioner();
+    private volatile boolean searchIndexReady = false;
     /**
      * Adds a review to the reviews map. If the hotel ID associated with the review already has
      * reviews recorded, the review is added to the existing set. If there are no reviews yet
@@ -28,27 +38,170 @@ public class ReviewData {
         String hotelId = review.getHotelId();
         if (hotelId != null) {
             if (newReview) {
-                reviewsDatabaseHandler.registerNewReview(review);
+                int reviewId = reviewsDatabaseHandler.registerNewReview(review);
+                searchIndex.add(reviewId, hotelId, review.getTitle(), review.getText());
             } else {
                 reviewsDatabaseHandler.registerDatesetReview(review);
                 createUser(review);
+                indexDatasetReviews(Collections.singletonList(review));
             }
 
         }
     }
 
     /**
-     * Adds all review in the list from a file to the main map
-     * and updates the invertedIndex map as well
+     * Adds all dataset reviews in the list from a file. The reviews and the users that wrote them are
+     * written in batches by the bulk loader and the user provisioner, so finishLoading() has to be called
+     * once all files are added.
      *
      * @param allReviews list of all reviews
      */
     public void addReviews(List<Review> allReviews) {
+        List<Review> reviews = new ArrayList<>(allReviews.size());
         for (Review review : allReviews) {
-            addReview(review, false);
+            if (review.getHotelId() != null) {
+                reviews.add(review);
+            }
+        }
+        userProvisioner.add(reviews);
+        bulkLoader.add(reviews);
+    }
+
+    /**
+     * Saves the changes of a review and updates it in the search index
+     *
+     * @param review review with the new title, text and rating
+     */
+    public void editReview(Review review) {
+        if (reviewsDatabaseHandler.editeReview(review)) {
+            searchIndex.add(toIndexId(review.getReviewId()), review.getHotelId(), review.getTitle(), review.getText());
+        }
+    }
+
+    /**
+     * Removes a review from the database and from the search index
+     *
+     * @param reviewId id of the review
+     */
+    public void removeReview(String reviewId) {
+        if (reviewsDatabaseHandler.removeReview(reviewId)) {
+            searchIndex.remove(toIndexId(reviewId));
+        }
+    }
+
+    /**
+     * Adds the reviews stored in the database to the search index, so reviews that were loaded
+     * at an earlier startup can be searched. Reviews can be added, edited and removed while it runs:
+     * those changes are kept and the rows streamed for the same reviews are skipped.
+     */
+    public void warmSearchIndex() {
+        long start = System.nanoTime();
+        searchIndex.startSnapshot();
+        try {
+            int count = reviewsDatabaseHandler.indexReviews(searchIndex);
+            System.out.printf("Indexed %d reviews in %.2fs%n", count, (System.nanoTime() - start) / 1_000_000_000.0);
+            System.out.println(searchIndex.getSummary());
+            searchIndexReady = true;
+        } catch (SQLException e) {
+            System.out.println("Failed to build the review search index: " + e.getMessage());
+        } finally {
+            searchIndex.finishSnapshot();
+        }
+    }
+
+    /**
+     * Checks if the search index contains the reviews that were stored before the server started
+     *
+     * @return true once warmSearchIndex() has finished
+     */
+    public boolean isSearchIndexReady() {
+        return searchIndexReady;
+    }
+
+    /**
+     * Searches the titles and texts of the reviews
+     *
+     * @param query   words to look for
+     * @param hotelId hotel to search in, or null to search all hotels
+     * @param limit   maximum number of results
+     * @return matching reviews, best first
+     */
+    public List<ReviewSearchHit> searchReviews(String query, String hotelId, int limit) {
+        return searchIndex.search(query, hotelId, limit);
+    }
+
+    /**
+     * Finds reviews by their reviewId, like the reviews returned by searchReviews
+     *
+     * @param reviewIds database ids of the reviews
+     * @return map from reviewId to review, for the reviews that exist
+     */
+    public Map<Integer, Review> getReviewsById(List<Integer> reviewIds) {
+        return reviewsDatabaseHandler.getReviews(reviewIds);
+    }
+
+    /**
+     * Adds dataset reviews that were written to the database to the search index. The index uses the
+     * database reviewIds, so they are looked up by the reviewIds of the dataset first.
+     *
+     * @param reviews dataset reviews that were written
+     */
+    private void indexDatasetReviews(List<Review> reviews) {
+        List<String> sourceReviewIds = new ArrayList<>(reviews.size());
+        for (Review review : reviews) {
+            sourceReviewIds.add(review.getReviewId());
+        }
+        try {
+            Map<String, Integer> reviewIds = reviewsDatabaseHandler.getReviewIds(sourceReviewIds);
+            for (Review review : reviews) {
+                Integer reviewId = reviewIds.get(review.getReviewId());
+                if (reviewId != null) {
+                    searchIndex.add(reviewId, review.getHotelId(), review.getTitle(), review.getText());
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Failed to index a batch of " + reviews.size() + " reviews: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a reviewId of a stored review to the id used by the search index
+     *
+     * @param reviewId database reviewId
+     * @return reviewId as a number, or -1 if it is not a number
+     */
+    private static int toIndexId(String reviewId) {
+        try {
+            return Integer.parseInt(reviewId);
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 
+    /**
+     * Writes the dataset reviews and users that are still waiting for a batch and prints the load summary.
+     */
+    public void finishLoading() {
+        userProvisioner.finish();
+        bulkLoader.finish();
+    }
+
+    /**
+     * Stops matching dataset reviews to reviews stored by an older version, after every dataset file was loaded
+     */
+    public void releaseUnclaimedReviews() {
+        reviewsDatabaseHandler.releaseUnclaimedReviews();
+    }
+
+    /**
+     * Returns the number of dataset reviews that could not be written since the server started.
+     *
+     * @return number of failed reviews
+     */
+    public long getFailedReviewCount() {
+        return bulkLoader.getRowsFailed();
+    }
+
     /**
      * Creates username and password for users in the given json file
      *
@@ -61,18 +214,33 @@ public class ReviewData {
     }
 
     /**
-     * finds reviews for the given hotel id
+     * finds a page of reviews for the given hotel id, including the like count of each review.
+     * Pages are addressed with cursors, so they stay stable when reviews are added while a user is paging.
      *
      * @param hotelId hotel id
-     * @return reviews of the given hotel id
+     * @param cursor  cursor token from a previous page, or null for the newest reviews
+     * @param forward true to get the page after the cursor (older reviews), false to get the page before it
+     * @param limit   maximum number of reviews on the page
+     * @return the page of reviews of the given hotel id
+     * @throws IllegalArgumentException if the cursor is not valid
      */
-    public List<Review> getReviews(String hotelId, int limit, int offset) {
-        List<Review> reviewList = hotelDatabaseHandler.getAllHotelReviews(hotelId, limit, offset);
-        for (Review review : reviewList) {
-            int likeCount = DatabaseHandler.getInstance().getLikeCount(Integer.parseInt(review.getReviewId()));
-            review.setLikeCount(likeCount);
+    public ReviewPage getReviews(String hotelId, String cursor, boolean forward, int limit) {
+        ReviewCursor position = cursor == null || cursor.isEmpty() ? null : ReviewCursor.decode(cursor);
+        boolean backward = position != null && !forward;
+        List<Review> reviews = hotelDatabaseHandler.getHotelReviews(hotelId, position, !backward, limit);
+        boolean hasMore = reviews.size() > limit;
+        if (hasMore) {
+            reviews = backward ? reviews.subList(1, reviews.size()) : reviews.subList(0, limit);
+        }
+        if (reviews.isEmpty()) {
+            return new ReviewPage(reviews, null, null);
         }
-        return reviewList;
 
+        String first = ReviewCursor.of(reviews.get(0)).encode();
+        String last = ReviewCursor.of(reviews.get(reviews.size() - 1)).encode();
+        if (backward) {
+            return new ReviewPage(reviews, last, hasMore ? first : null);
+        }
+        return new ReviewPage(reviews, hasMore ? last : null, position != null ? first : null);
     }
 }
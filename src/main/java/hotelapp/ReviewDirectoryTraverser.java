@@ -1,5 +1,6 @@
 package hotelapp;
 
+import data.IngestedFile;
 import data.Review;
 import parser.ReviewParser;
 
@@ -8,100 +9,307 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This Class traverse directories concurrently
+ * This Class traverse directories and loads the review files in a pipeline of stages:
+ * the directory walk submits every json file to the parse stage, the parse threads put
+ * chunks of parsed reviews on a bounded queue, and the writer threads take the chunks from
+ * the queue and write them to the database. When the writers fall behind, the queue fills up
+ * and the parse threads wait, so memory use stays bounded.
  */
 public class ReviewDirectoryTraverser {
+    private static final int CHUNK_SIZE = 100;
+    private static final long METRICS_INTERVAL_SECONDS = 5;
+    private static final List<Review> END_OF_INPUT = new ArrayList<>();
     private final ExecutorService poolManager;
+    private final ExecutorService writerPool;
+    private final int writerThreads;
+    private final BlockingQueue<List<Review>> queue;
     private final Phaser phaser;
     private final ReviewParser reviewParser;
 
+    private final IngestProgress progress;
+    private final AtomicLong filesLoaded = new AtomicLong();
+    private final Set<String> loadedHotelIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong parseWaitNanos = new AtomicLong();
+    private volatile boolean writeFailed = false;
+    private volatile boolean readFailed = false;
+
     public ReviewDirectoryTraverser(int threadNum, ReviewParser reviewParser) {
-        this.poolManager = Executors.newFixedThreadPool(threadNum);
-        this.phaser = new Phaser();
+        this(threadNum, 2, 64, reviewParser, new IngestProgress());
+    }
+
+    /**
+     * Creates a traverser with its own concurrency for each stage
+     *
+     * @param parseThreads  number of threads parsing json files
+     * @param writerThreads number of threads writing reviews to the database
+     * @param queueCapacity maximum number of chunks of parsed reviews waiting for a writer
+     * @param reviewParser  parser for review files
+     * @param progress      receives the progress of the stages
+     */
+    public ReviewDirectoryTraverser(int parseThreads, int writerThreads, int queueCapacity, ReviewParser reviewParser,
+                                    IngestProgress progress) {
+        this.progress = progress;
+        this.poolManager = Executors.newFixedThreadPool(parseThreads, WorkerThreads.factory("review-parser"));
+        this.writerThreads = writerThreads;
+        this.writerPool = Executors.newFixedThreadPool(writerThreads, WorkerThreads.factory("review-writer"));
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.phaser = new Phaser(1);
         this.reviewParser = reviewParser;
     }
 
     /**
-     * Helper method for traversing directories concurrently and shutting down the pool
+     * Helper method for traversing directories concurrently and shutting down the pools.
+     * Files that the manifest knows to be unchanged are skipped. Loaded files are recorded in the
+     * manifest once all reviews are written, unless writing some of the reviews failed, in which case
+     * nothing is recorded so the files are loaded again at the next startup. When every file was read and
+     * written without errors, reviews stored by an older version are no longer matched to dataset reviews.
      *
      * @param directoryPath        path to directories
      * @param threadSafeReviewData thread safe class for adding reviews to data structures
+     * @param manifest             manifest of the files that were ingested before
+     * @return number of files that were loaded
      */
-    public void traverseDirectory(String directoryPath, ThreadSafeReviewData threadSafeReviewData) {
+    public long traverseDirectory(String directoryPath, ReviewData threadSafeReviewData, IngestManifest manifest) {
+        long start = System.nanoTime();
+        long failedBefore = threadSafeReviewData.getFailedReviewCount();
+        for (int i = 0; i < writerThreads; i++) {
+            writerPool.submit(new Writer(threadSafeReviewData));
+        }
+        ScheduledExecutorService metricsLogger = Executors.newSingleThreadScheduledExecutor();
+        metricsLogger.scheduleAtFixedRate(() -> System.out.println(getMetrics(start)),
+                METRICS_INTERVAL_SECONDS, METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
         try {
-            processDirectory(directoryPath, threadSafeReviewData);
+            processDirectory(directoryPath, manifest);
+            progress.walkFinished();
         } finally {
             shutdownPool();
+            metricsLogger.shutdownNow();
+            threadSafeReviewData.finishLoading();
+            System.out.println(getMetrics(start) + " | skipped " + manifest.getSkippedFiles() + " unchanged files");
+        }
+        if (writeFailed || threadSafeReviewData.getFailedReviewCount() > failedBefore) {
+            System.out.println("Some reviews could not be written, the files will be loaded again at the next startup");
+            manifest.discard();
+        } else {
+            manifest.save();
+            if (!readFailed && manifest.getSkippedFiles() == 0 && filesLoaded.get() > 0) {
+                // every file was loaded, so the old reviews that were not claimed are not in the dataset
+                threadSafeReviewData.releaseUnclaimedReviews();
+            }
         }
+        return filesLoaded.get();
     }
 
     /**
-     * Traverse over directories and parse json files in each directory and get information for them
-     * each json file is parsed concurrently
+     * Traverse over directories and submit each json file that has to be loaded to the parse stage
      *
-     * @param directoryPath        path to the directory with reviews
-     * @param threadSafeReviewData thread safe version of the ReviewData class
+     * @param directoryPath path to the directory with reviews
+     * @param manifest      manifest of the files that were ingested before
      */
-    private void processDirectory(String directoryPath, ThreadSafeReviewData threadSafeReviewData) {
+    private void processDirectory(String directoryPath, IngestManifest manifest) {
         Path path = Paths.get(directoryPath);
         if (Files.isDirectory(path)) {
             try (DirectoryStream<Path> filesName = Files.newDirectoryStream(path)) {
                 for (Path filePath : filesName) {
                     if (Files.isDirectory(filePath)) {
-                        processDirectory(filePath.toString(), threadSafeReviewData);
-                    } else if (!Files.isDirectory(filePath) && filePath.toString().endsWith(".json")) {
-                        poolManager.submit(new FileWorker(filePath, threadSafeReviewData));
+                        processDirectory(filePath.toString(), manifest);
+                    } else if (filePath.toString().endsWith(".json")) {
+                        submitFile(filePath, manifest);
                     }
                 }
             } catch (IOException e) {
+                readFailed = true;
                 System.out.println(e);
             }
         } else if (path.toString().endsWith(".json")) {
-            poolManager.submit(new FileWorker(path, threadSafeReviewData));
+            submitFile(path, manifest);
         } else {
             System.out.println("Invalid path");
         }
     }
 
     /**
-     * Inner class responsible for processing json files concurrently
+     * Submits a file to the parse stage unless the manifest shows it has not changed
+     *
+     * @param filePath path of a json file
+     * @param manifest manifest of the files that were ingested before
+     */
+    private void submitFile(Path filePath, IngestManifest manifest) {
+        try {
+            if (manifest.needsLoading(filePath, Files.readAttributes(filePath, BasicFileAttributes.class))) {
+                poolManager.submit(new FileWorker(filePath, manifest));
+            }
+        } catch (IOException e) {
+            readFailed = true;
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Puts a chunk of reviews on the queue, waiting while the queue is full.
+     *
+     * @param chunk parsed reviews
+     */
+    private void enqueue(List<Review> chunk) {
+        long start = System.nanoTime();
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the writers", e);
+        } finally {
+            parseWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Inner class responsible for parsing json files concurrently
      */
     private class FileWorker implements Runnable {
         private final Path filePath;
-        private final ThreadSafeReviewData threadSafeReviewData;
+        private final IngestManifest manifest;
+        private List<Review> chunk = new ArrayList<>();
 
-        public FileWorker(Path filePath, ThreadSafeReviewData threadSafeReviewData) {
+        public FileWorker(Path filePath, IngestManifest manifest) {
             this.filePath = filePath;
-            this.threadSafeReviewData = threadSafeReviewData;
+            this.manifest = manifest;
+            progress.fileFound();
             phaser.register();
         }
 
         @Override
         public void run() {
             try {
-                List<Review> localReviews = reviewParser.loadDataFromJson(filePath.toString());
-                if (localReviews != null) {
-                    threadSafeReviewData.addReviews(localReviews);
+                IngestedFile file = manifest.describe(filePath);
+                if (manifest.hasSameContent(file)) {
+                    manifest.markLoaded(file);
+                    return;
                 }
-            } catch (Exception e) {
-                System.out.println(e);
+                int count = reviewParser.streamDataFromJson(filePath.toString(), this::addToChunk);
+                if (!chunk.isEmpty()) {
+                    enqueue(chunk);
+                }
+                filesLoaded.incrementAndGet();
+                if (count >= 0) {
+                    manifest.markLoaded(file);
+                } else {
+                    readFailed = true;
+                }
+            } catch (Throwable e) {
+                readFailed = true;
+                System.out.println("Failed to load " + filePath + ": " + e);
             } finally {
+                progress.fileDone();
                 phaser.arriveAndDeregister();
             }
         }
+
+        /**
+         * Collects reviews streamed from the file and puts them on the queue every CHUNK_SIZE reviews,
+         * so a large file is never held in memory at once.
+         *
+         * @param review review parsed from the file
+         */
+        private void addToChunk(Review review) {
+            progress.reviewParsed(review.getHotelId());
+            loadedHotelIds.add(review.getHotelId());
+            chunk.add(review);
+            if (chunk.size() >= CHUNK_SIZE) {
+                enqueue(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Inner class responsible for writing parsed reviews until the end of the input.
+     * A chunk that fails, even with an Error, is logged and the writer goes on taking chunks, so the
+     * parse threads never wait on a queue that no writer empties and the load always finishes.
+     */
+    private class Writer implements Runnable {
+        private final ReviewData threadSafeReviewData;
+
+        public Writer(ReviewData threadSafeReviewData) {
+            this.threadSafeReviewData = threadSafeReviewData;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Review> chunk;
+                while ((chunk = queue.take()) != END_OF_INPUT) {
+                    try {
+                        threadSafeReviewData.addReviews(chunk);
+                        progress.reviewsLoaded(chunk.size());
+                    } catch (Throwable e) {
+                        writeFailed = true;
+                        System.out.println("Failed to write " + chunk.size() + " reviews: " + e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     /**
-     * Waits for other threads to reach a certain point and shutdowns the pool
+     * Waits for the parse stage to finish, tells the writers that the input has ended,
+     * waits for them to write the rest of the queue and shuts down both pools
      */
     private void shutdownPool() {
-        phaser.awaitAdvance(phaser.getPhase());
+        phaser.arriveAndAwaitAdvance();
+        progress.parseFinished();
         poolManager.shutdown();
+        try {
+            for (int i = 0; i < writerThreads; i++) {
+                queue.put(END_OF_INPUT);
+            }
+            writerPool.shutdown();
+            writerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the ids of the hotels that reviews were loaded for, including the reviews of files that failed
+     * part way, whose rating summaries have to be updated after the traversal
+     *
+     * @return ids of the hotels of the loaded reviews
+     */
+    public Set<String> getLoadedHotelIds() {
+        return loadedHotelIds;
+    }
+
+    /**
+     * Builds a line with the throughput of each stage and the depth of the queue
+     *
+     * @param start time the traversal started, from System.nanoTime()
+     * @return metrics of the pipeline
+     */
+    private String getMetrics(long start) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1_000_000_000.0);
+        return String.format("Ingest: walk found %d files | parse %d files, %d reviews (%.0f reviews/s, %.2fs waiting on a full queue)"
+                        + " | queue %d/%d chunks | write %d reviews (%.0f reviews/s)",
+                progress.getFilesFound(), progress.getFilesDone(), progress.getReviewsParsed(),
+                progress.getReviewsParsed() / seconds, parseWaitNanos.get() / 1_000_000_000.0, queue.size(),
+                queue.size() + queue.remainingCapacity(), progress.getReviewsLoaded(),
+                progress.getReviewsLoaded() / seconds);
     }
 }
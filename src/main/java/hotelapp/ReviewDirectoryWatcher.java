@@ -0,0 +1,331 @@
+package hotelapp;
+
+import data.IngestedFile;
+import data.Review;
+import parser.ReviewParser;
+import server.HotelDatabaseHandler;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the reviews directory tree after startup and loads new or modified review files in the background.
+ * File events are collected into a set, so several events for the same file count once, and a load only
+ * starts after no event arrived for DEBOUNCE_MS (or MAX_DELAY_MS after the first event of a burst).
+ * Loads run one at a time on a single low priority thread that writes through the same ReviewData and
+ * manifest as the startup load, so it never takes more than one database connection from the requests.
+ * The directories are registered before the startup load and the events are only processed after it,
+ * so files added while the startup load runs are not missed; the manifest skips the ones it loaded.
+ */
+public class ReviewDirectoryWatcher {
+    private static final long DEBOUNCE_MS = 2000;
+    private static final long MAX_DELAY_MS = 30000;
+    private static final int CHUNK_SIZE = 100;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final Path root;
+    private final ReviewData threadSafeReviewData;
+    private final ReviewParser reviewParser;
+    private final IngestManifest manifest;
+    private final HotelDatabaseHandler hotelDatabaseHandler = HotelDatabaseHandler.getInstance();
+    private final ScheduledThreadPoolExecutor ingestExecutor;
+    private final Set<Path> pendingFiles = new LinkedHashSet<>();
+    private ScheduledFuture<?> scheduledLoad;
+    private long firstPendingEvent;
+    private WatchService watchService;
+
+    public ReviewDirectoryWatcher(String reviewPath, ReviewData threadSafeReviewData,
+                                  ReviewParser reviewParser, IngestManifest manifest) {
+        this.root = Paths.get(reviewPath);
+        this.threadSafeReviewData = threadSafeReviewData;
+        this.reviewParser = reviewParser;
+        this.manifest = manifest;
+        this.ingestExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "review-watch-ingest");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        // a load waiting for more events when the watcher stops is done at the next startup instead
+        ingestExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Registers the directory tree with a WatchService. Events from now on are kept by the WatchService
+     * until start() is called.
+     *
+     * @throws IOException if the directories could not be registered
+     */
+    public void register() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(root);
+    }
+
+    /**
+     * Starts the thread that receives the events of the registered directories. Must be called after
+     * register() and after the startup load has saved the manifest.
+     */
+    public void start() {
+        Thread watcher = new Thread(this::processEvents, "review-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("Watching " + root + " for new review files");
+    }
+
+    /**
+     * Stops watching and waits up to STOP_TIMEOUT_SECONDS for a load that is running to finish.
+     * Loads that are still waiting for more events are dropped; their files are loaded at the next startup.
+     */
+    public void stop() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+        ingestExecutor.shutdown();
+        try {
+            if (!ingestExecutor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                ingestExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ingestExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers a directory and all its subdirectories, and queues the json files already in them.
+     * Files copied into a new directory before it was registered are found this way.
+     *
+     * @param directory directory to watch
+     * @throws IOException if a directory could not be registered
+     */
+    private void registerTree(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                } else if (isReviewFile(path)) {
+                    files.add(path);
+                }
+            }
+        }
+        if (!files.isEmpty() && !directory.equals(root)) {
+            addPendingFiles(files);
+        }
+    }
+
+    /**
+     * Receives file events until the watch service is closed
+     */
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            List<Path> files = new ArrayList<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    rescan();
+                    continue;
+                }
+                Path path = directory.resolve((Path) event.context());
+                try {
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                        registerTree(path);
+                    } else if (isReviewFile(path)) {
+                        files.add(path);
+                    }
+                } catch (IOException e) {
+                    System.out.println(e);
+                }
+            }
+            addPendingFiles(files);
+            key.reset();
+        }
+    }
+
+    /**
+     * Queues every json file of the tree after events were lost; the manifest skips the unchanged ones.
+     */
+    private void rescan() {
+        try (Stream<Path> paths = Files.walk(root)) {
+            List<Path> files = new ArrayList<>();
+            paths.filter(ReviewDirectoryWatcher::isReviewFile).forEach(files::add);
+            addPendingFiles(files);
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Adds files to the pending set and moves the next load to DEBOUNCE_MS from now,
+     * but not later than MAX_DELAY_MS after the first pending event.
+     *
+     * @param files changed files
+     */
+    private synchronized void addPendingFiles(List<Path> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (pendingFiles.isEmpty()) {
+            firstPendingEvent = now;
+        }
+        pendingFiles.addAll(files);
+        if (scheduledLoad != null) {
+            scheduledLoad.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(DEBOUNCE_MS, firstPendingEvent + MAX_DELAY_MS - now));
+        try {
+            scheduledLoad = ingestExecutor.schedule(this::loadPendingFiles, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // stopped while the event was handled; the files are loaded at the next startup
+            scheduledLoad = null;
+        }
+    }
+
+    /**
+     * Takes the pending files
+     *
+     * @return files to load
+     */
+    private synchronized List<Path> takePendingFiles() {
+        List<Path> files = new ArrayList<>(pendingFiles);
+        pendingFiles.clear();
+        scheduledLoad = null;
+        return files;
+    }
+
+    /**
+     * Loads the pending files that are new or changed, then updates the rating summaries of their hotels.
+     * An exception is logged instead of being kept in the discarded future of the scheduled load, and the
+     * files of a load that failed are loaded again at the next startup.
+     */
+    private void loadPendingFiles() {
+        List<Path> files = takePendingFiles();
+        long start = System.currentTimeMillis();
+        long failedBefore = threadSafeReviewData.getFailedReviewCount();
+        Set<String> hotelIds = new HashSet<>();
+        int loadedFiles = 0;
+        boolean failed = false;
+        try {
+            try {
+                for (Path file : files) {
+                    if (loadIfChanged(file, hotelIds)) {
+                        loadedFiles++;
+                    }
+                }
+            } finally {
+                // flushes the buffered reviews even if a file failed, so the next load starts empty
+                threadSafeReviewData.finishLoading();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Loading changed review files failed: " + e);
+            failed = true;
+        }
+        try {
+            if (failed || threadSafeReviewData.getFailedReviewCount() > failedBefore) {
+                System.out.println("Some reviews could not be written, the files will be loaded again at the next startup");
+                manifest.discard();
+            } else {
+                manifest.save();
+            }
+            hotelDatabaseHandler.rebuildHotelRatings(hotelIds);
+        } catch (RuntimeException e) {
+            System.out.println("Updating the rating summaries after loading review files failed: " + e);
+        }
+        if (loadedFiles > 0) {
+            System.out.println("Loaded " + loadedFiles + " changed review files for " + hotelIds.size() + " hotels in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    /**
+     * Loads a file if the manifest shows that it is new or changed
+     *
+     * @param file     review file
+     * @param hotelIds collects the ids of the hotels of the loaded reviews
+     * @return true if the file was loaded
+     */
+    private boolean loadIfChanged(Path file, Set<String> hotelIds) {
+        try {
+            if (!Files.isRegularFile(file)
+                    || !manifest.needsLoading(file, Files.readAttributes(file, BasicFileAttributes.class))) {
+                return false;
+            }
+            IngestedFile ingestedFile = manifest.describe(file);
+            if (manifest.hasSameContent(ingestedFile)) {
+                manifest.markLoaded(ingestedFile);
+            } else if (loadFile(file, hotelIds)) {
+                manifest.markLoaded(ingestedFile);
+                return true;
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+        return false;
+    }
+
+    /**
+     * Parses one file and adds its reviews in chunks
+     *
+     * @param file     review file
+     * @param hotelIds collects the ids of the hotels of the loaded reviews
+     * @return true if the whole file was read
+     */
+    private boolean loadFile(Path file, Set<String> hotelIds) {
+        List<Review> chunk = new ArrayList<>();
+        int count = reviewParser.streamDataFromJson(file.toString(), review -> {
+            hotelIds.add(review.getHotelId());
+            chunk.add(review);
+            if (chunk.size() >= CHUNK_SIZE) {
+                threadSafeReviewData.addReviews(new ArrayList<>(chunk));
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            threadSafeReviewData.addReviews(chunk);
+        }
+        return count >= 0;
+    }
+
+    /**
+     * Checks if a path is a review json file
+     *
+     * @param path path of a file
+     * @return true if the file ends with .json
+     */
+    private static boolean isReviewFile(Path path) {
+        return path.toString().endsWith(".json") && !Files.isDirectory(path);
+    }
+}
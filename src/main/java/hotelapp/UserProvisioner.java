@@ -0,0 +1,118 @@
+package hotelapp;
+
+import data.Review;
+import server.DatabaseHandler;
+import server.UserDatabaseHandler;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Creates the users of the dataset reviews during the import.
+ * Every nickname is only handled the first time it is seen; its password is made from the reviewId of
+ * that first review, as before. New nicknames are collected and registered in batches of batchSize
+ * by UserDatabaseHandler.registerDatasetUsers, so the import makes a few queries per batch of distinct
+ * users instead of several round trips per review.
+ */
+public class UserProvisioner {
+    private static final int MAX_USERNAME_LENGTH = 32;
+    private final UserDatabaseHandler userDatabaseHandler = UserDatabaseHandler.getInstance();
+    private final int batchSize;
+    private final Set<String> seenNicknames = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<String, String> pending = new LinkedHashMap<>();
+
+    private final AtomicLong usersSubmitted = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    public UserProvisioner() {
+        this(Integer.parseInt(DatabaseHandler.getInstance().getProperty("ingest.batchSize", "500")));
+    }
+
+    public UserProvisioner(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Collects the users of the given reviews that were not seen before, and registers them once a batch is full.
+     *
+     * @param reviews reviews parsed from a dataset file
+     */
+    public void add(Iterable<Review> reviews) {
+        Map<String, String> batch = null;
+        lock.lock();
+        try {
+            for (Review review : reviews) {
+                String username = review.getNickName();
+                if (username == null || username.isEmpty() || username.length() > MAX_USERNAME_LENGTH
+                        || !seenNicknames.add(username)) {
+                    continue;
+                }
+                pending.put(username, "StrongPass" + username + review.getReviewId() + "$");
+            }
+            if (pending.size() >= batchSize) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (batch != null) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Registers the users that are left in the current batch and prints a summary.
+     */
+    public void finish() {
+        Map<String, String> rest;
+        lock.lock();
+        try {
+            rest = pending;
+            pending = new LinkedHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+        System.out.println(getSummary());
+    }
+
+    /**
+     * Registers one batch of users, outside the lock so several workers can write at the same time.
+     *
+     * @param batch map from username to password
+     */
+    private void write(Map<String, String> batch) {
+        long start = System.nanoTime();
+        try {
+            usersSubmitted.addAndGet(userDatabaseHandler.registerDatasetUsers(batch));
+            batchesWritten.incrementAndGet();
+        } catch (SQLException e) {
+            // forget the names so they are tried again if they show up in a later file
+            seenNicknames.removeAll(batch.keySet());
+            System.out.println("Failed to create a batch of " + batch.size() + " users: " + e.getMessage());
+        } finally {
+            writeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Builds the summary of the users submitted so far; names registered by someone else in the meantime
+     * are submitted but not inserted
+     *
+     * @return user summary
+     */
+    public String getSummary() {
+        return String.format("Submitted %d new users out of %d distinct nicknames in %d batches, %.2fs spent writing",
+                usersSubmitted.get(), seenNicknames.size(), batchesWritten.get(), writeNanos.get() / 1_000_000_000.0);
+    }
+}
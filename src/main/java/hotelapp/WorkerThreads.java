@@ -0,0 +1,30 @@
+package hotelapp;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of the ingest stages with the name of their stage, so they can be told apart
+ * in thread dumps and in the metrics log.
+ */
+public class WorkerThreads {
+    private WorkerThreads() {
+    }
+
+    /**
+     * Creates a factory for the threads of one stage
+     *
+     * @param name prefix of the thread names
+     * @return thread factory
+     */
+    public static ThreadFactory factory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        return r -> {
+            Thread thread = defaultFactory.newThread(r);
+            thread.setName(name + "-" + count.incrementAndGet());
+            return thread;
+        };
+    }
+}
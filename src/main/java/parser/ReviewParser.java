@@ -3,14 +3,18 @@ package parser;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import data.Review;
 import hotelapp.InvalidRatingException;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 /**
@@ -50,6 +54,101 @@ public class ReviewParser {
         return null;
     }
 
+    /**
+     * Parses review data from a json file without building a tree of the whole file.
+     * Only the reviewDetails.reviewCollection.review array is read; every other subtree is skipped,
+     * and each review is passed to the consumer as soon as it is parsed, so memory use does not
+     * depend on the size of the file.
+     *
+     * @param path     path to the json file
+     * @param consumer receives each parsed review
+     * @return number of reviews passed to the consumer, or -1 if the file could not be read completely
+     */
+    public int streamDataFromJson(String path, Consumer<Review> consumer) {
+        int count = 0;
+        try (JsonReader reader = new JsonReader(new BufferedReader(new FileReader(path)))) {
+            if (!moveToField(reader, "reviewDetails") || !moveToField(reader, "reviewCollection")
+                    || !moveToField(reader, "review") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                return count;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Review review = readReview(reader);
+                if (review != null) {
+                    consumer.accept(review);
+                    count++;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.out.println(e);
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Enters the current json object and skips its fields until the field with the given name.
+     *
+     * @param reader json reader positioned at an object
+     * @param name   name of the field to find
+     * @return true if the reader is positioned at the value of the field, false if the object has no such field
+     * @throws IOException if the file could not be read
+     */
+    private boolean moveToField(JsonReader reader, String name) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(name)) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Reads one review object from the review array, skipping the fields that are not needed.
+     *
+     * @param reader json reader positioned at a review object
+     * @return Review object, or null if the review could not be created
+     * @throws IOException if the file could not be read
+     */
+    private Review readReview(JsonReader reader) throws IOException {
+        String hotelId = null;
+        String reviewId = null;
+        int rating = 0;
+        String title = null;
+        String text = null;
+        String nickname = null;
+        String date = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "hotelId" -> hotelId = reader.nextString();
+                case "reviewId" -> reviewId = reader.nextString();
+                case "ratingOverall" -> rating = reader.nextInt();
+                case "title" -> title = reader.nextString();
+                case "reviewText" -> text = reader.nextString();
+                case "userNickname" -> nickname = reader.nextString().trim();
+                case "reviewSubmissionDate" -> date = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (hotelId == null || reviewId == null || date == null) {
+            return null;
+        }
+        return createReview(hotelId, reviewId, rating, title, text == null ? "" : text, nickname == null ? "" : nickname, date);
+    }
+
     /**
      * Parses a json object and creates Review objects
      *
@@ -65,12 +164,30 @@ public class ReviewParser {
             String text = reviewObj.get("reviewText").getAsString();
             String nickname = reviewObj.get("userNickname").getAsString().trim();
             String date = reviewObj.get("reviewSubmissionDate").getAsString();
-            return new Review(hotelId, reviewId, rating, title, text, nickname, date);
+            return createReview(hotelId, reviewId, rating, title, text, nickname, date);
         } catch (DateTimeParseException e) {
             System.out.println(e);
+        }
+        return null;
+    }
+
+    /**
+     * Creates a Review object from the values read from the json file
+     *
+     * @param hotelId  id of the hotel
+     * @param reviewId id of the review in the dataset
+     * @param rating   overall rating
+     * @param title    title of the review
+     * @param text     text of the review
+     * @param nickname nickname of the user
+     * @param date     submission date
+     * @return Review object
+     */
+    private Review createReview(String hotelId, String reviewId, int rating, String title, String text, String nickname, String date) {
+        try {
+            return new Review(hotelId, reviewId, rating, title, text, nickname, date);
         } catch (InvalidRatingException e) {
             throw new RuntimeException(e);
         }
-        return null;
     }
 }
@@ -0,0 +1,289 @@
+package server;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of database connections.
+ * Connections are created lazily up to maxSize, validated before being handed out
+ * after they have been idle for a while, and idle connections above minSize are
+ * evicted in the background. Callers close the connection they got as usual, which
+ * returns it to the pool instead of closing the physical connection.
+ */
+public class ConnectionPool {
+    private final String uri;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+    private final int validationTimeoutSec;
+    private final int statementCacheSize;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Creates a pool for the given JDBC uri. Pool settings are read from the "pool.*"
+     * keys of the given properties, falling back to defaults when a key is missing.
+     *
+     * @param uri      JDBC uri of the database
+     * @param config   properties containing username, password and pool settings
+     */
+    public ConnectionPool(String uri, Properties config) {
+        this.uri = uri;
+        this.username = config.getProperty("username");
+        this.password = config.getProperty("password");
+        this.minSize = getInt(config, "pool.minSize", 2);
+        this.maxSize = Math.max(1, getInt(config, "pool.maxSize", 10));
+        this.acquireTimeoutMs = getInt(config, "pool.acquireTimeoutMs", 5000);
+        this.idleTimeoutMs = getInt(config, "pool.idleTimeoutMs", 600000);
+        this.validationIntervalMs = getInt(config, "pool.validationIntervalMs", 30000);
+        this.validationTimeoutSec = getInt(config, "pool.validationTimeoutSec", 2);
+        this.statementCacheSize = getInt(config, "pool.statementCacheSize", 64);
+        this.permits = new Semaphore(maxSize, true);
+
+        long evictionIntervalMs = getInt(config, "pool.evictionIntervalMs", 60000);
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, evictionIntervalMs, evictionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads an integer setting from the properties file.
+     *
+     * @param config       properties
+     * @param key          name of the setting
+     * @param defaultValue value used when the setting is missing or invalid
+     * @return value of the setting
+     */
+    private static int getInt(Properties config, String key, int defaultValue) {
+        String value = config.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.replace("\"", "").trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting at most acquireTimeoutMs for one to become available.
+     *
+     * @return a connection that returns to the pool when it is closed
+     * @throws SQLException if no connection became available in time or a new connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMs + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            activeConnections.incrementAndGet();
+            recordWait(System.nanoTime() - start);
+            return pooled.checkout();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection, discarding connections that fail validation.
+     *
+     * @return a valid idle connection, or null if there is none
+     */
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.getLastUsed() < validationIntervalMs || pooled.isValid(validationTimeoutSec)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    /**
+     * Opens a new physical connection.
+     *
+     * @return the new pooled connection
+     * @throws SQLException if the connection could not be opened
+     */
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(uri, username, password);
+        try {
+            PooledConnection pooled = new PooledConnection(connection, this, statementCacheSize);
+            totalConnections.incrementAndGet();
+            return pooled;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool. Called when the caller closes its connection.
+     *
+     * @param pooled the connection being returned
+     */
+    void release(PooledConnection pooled) {
+        activeConnections.decrementAndGet();
+        try {
+            if (pooled.reset()) {
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the physical connection and removes it from the pool.
+     *
+     * @param pooled connection to discard
+     */
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        pooled.closePhysical();
+    }
+
+    /**
+     * Closes idle connections that have not been used for idleTimeoutMs, keeping at least minSize connections open.
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooled = iterator.next();
+            if (now - pooled.getLastUsed() > idleTimeoutMs && idle.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+    }
+
+    /**
+     * Records how long a caller waited for a connection.
+     *
+     * @param waitNanos time waited in nanoseconds
+     */
+    private void recordWait(long waitNanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.incrementAndGet();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.incrementAndGet();
+    }
+
+    /**
+     * Closes all idle connections and stops the eviction thread.
+     */
+    public void shutdown() {
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    //Getters for pool metrics
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = acquireCount.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / (count * 1_000_000.0);
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Prints a summary of the pool metrics
+     *
+     * @return pool metrics
+     */
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, total=%d, max=%d, acquired=%d, timeouts=%d, avgWait=%.3fms, maxWait=%.3fms, statementCacheHits=%d, statementCacheMisses=%d]",
+                getActiveConnections(), getIdleConnections(), getTotalConnections(), maxSize,
+                getAcquireCount(), getAcquireTimeouts(), getAverageWaitMillis(), getMaxWaitMillis(),
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+}
@@ -8,6 +8,7 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * This class handles connection and operations on database
@@ -17,10 +18,14 @@ public class DatabaseHandler {
     private static final DatabaseHandler dbHandler = new DatabaseHandler("database.properties");
     private final Properties config;
     private String uri = null;
+    private final ConnectionPool connectionPool;
+    private volatile Set<String> knownTables = Set.of();
 
     private DatabaseHandler(String propertiesFile) {
         this.config = loadConfigFile(propertiesFile);
-        this.uri = "jdbc:mysql://" + config.getProperty("hostname") + "/" + config.getProperty("database") + "?useUnicode=true&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false";
+        this.uri = "jdbc:mysql://" + config.getProperty("hostname") + "/" + config.getProperty("database") + "?useUnicode=true&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&useServerPrepStmts=true"
+                + "&rewriteBatchedStatements=" + getProperty("ingest.rewriteBatchedStatements", "true");
+        this.connectionPool = new ConnectionPool(uri, config);
     }
 
     /**
@@ -50,60 +55,65 @@ public class DatabaseHandler {
     }
 
     /**
-     * Creates the "reviewsLikes" table if it doesn't exist.
+     * Checks if the given table exists in the database.
+     * The answer comes from the schema recorded by SchemaBootstrap at startup,
+     * so this method never queries the database metadata.
+     *
+     * @param tableName The name of the table to check.
+     * @return True if the table exists, false otherwise.
      */
-    public void createLikesTable() {
-        if (!tableExists("reviewsLikes")) {
-            Statement statement;
-            try (Connection dbConnection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"))) {
-                statement = dbConnection.createStatement();
-                statement.executeUpdate(PreparedStatements.CREATE_REVIEWS_LIKES_TABLE);
-            } catch (SQLException ex) {
-                System.out.println(ex);
-            }
-        }
+    public boolean tableExists(String tableName) {
+        return knownTables.contains(tableName);
     }
 
     /**
-     * Creates the "expediaLinks" table if it doesn't exist.
+     * Records the tables of the database. Called by SchemaBootstrap once the schema is created.
+     *
+     * @param tables names of all tables in the database
      */
-    public void createExpediaLinksTable() {
-        if (!tableExists("expediaLinks")) {
-            Statement statement;
-            try (Connection dbConnection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"))) {
-                statement = dbConnection.createStatement();
-                statement.executeUpdate(PreparedStatements.CREATE_TABLE_EXPEDIA_LINKS);
-            } catch (SQLException ex) {
-                System.out.println(ex);
-            }
-        }
+    void setKnownTables(Set<String> tables) {
+        knownTables = Set.copyOf(tables);
     }
 
     /**
-     * Checks if the given table exists in the database.
+     * Returns a setting from the properties file.
      *
-     * @param tableName The name of the table to check.
-     * @return True if the table exists, false otherwise.
+     * @param key          name of the setting
+     * @param defaultValue value returned when the setting is missing
+     * @return value of the setting
      */
-    public boolean tableExists(String tableName) {
-        try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"))) {
-            DatabaseMetaData metaData = connection.getMetaData();
-            ResultSet resultSet = metaData.getTables(null, config.getProperty("database"), tableName, new String[]{"TABLE"});
-            return resultSet.next();
-        } catch (SQLException e) {
-            System.err.println("Error checking table existence: " + e.getMessage());
-        }
-        return false;
+    public String getProperty(String key, String defaultValue) {
+        String value = config.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Returns the name of the database from the properties file.
+     *
+     * @return database name
+     */
+    public String getDatabaseName() {
+        return config.getProperty("database");
     }
 
     /**
-     * Retrieves a new database connection.
+     * Borrows a database connection from the connection pool.
+     * Closing the returned connection gives it back to the pool.
      *
      * @return A Connection object representing the database connection.
-     * @throws SQLException If an SQL error occurs during connection.
+     * @throws SQLException If an SQL error occurs during connection or no connection is available in time.
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"));
+        return connectionPool.getConnection();
+    }
+
+    /**
+     * Returns the connection pool, e.g. to read its metrics.
+     *
+     * @return the connection pool used by this handler
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
 
     /**
@@ -115,7 +125,7 @@ public class DatabaseHandler {
      */
     public boolean AddLike(String username, int reviewId) {
         if (!liked(username, reviewId)) {
-            try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"));
+            try (Connection connection = getConnection();
                  PreparedStatement statement = connection.prepareStatement(PreparedStatements.ADD_LIKE_SQL)) {
                 statement.setString(1, username);
                 statement.setInt(2, reviewId);
@@ -139,7 +149,7 @@ public class DatabaseHandler {
      */
     public boolean addLink(String username, String link) {
         if (!visited(username, link)) {
-            try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"));
+            try (Connection connection = getConnection();
                  PreparedStatement statement = connection.prepareStatement(PreparedStatements.ADD_LINK_SQL)) {
                 statement.setString(1, username);
                 statement.setString(2, link);
@@ -161,17 +171,15 @@ public class DatabaseHandler {
      * @return The number of likes for the given review.
      */
     public int getLikeCount(int reviewId) {
-        if (tableExists("reviewsLikes")) {
-            try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"));
-                 PreparedStatement statement = connection.prepareStatement(PreparedStatements.NUMBER_OF_LIKES_SQL)) {
-                statement.setInt(1, reviewId);
-                ResultSet resultSet = statement.executeQuery();
-                if (resultSet.next()) {
-                    return resultSet.getInt("likesCount");
-                }
-            } catch (Exception e) {
-                System.out.println(e);
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.NUMBER_OF_LIKES_SQL)) {
+            statement.setInt(1, reviewId);
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                return resultSet.getInt("likesCount");
             }
+        } catch (Exception e) {
+            System.out.println(e);
         }
         return 0;
     }
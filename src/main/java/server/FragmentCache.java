@@ -0,0 +1,65 @@
+package server;
+
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches rendered HTML fragments that are the same for every user, keyed by the name of the fragment,
+ * the hotel it shows and the version of that hotel's data.
+ * A write to a hotel gives it a new version, so the fragments rendered before the write are never
+ * returned again and are evicted as the least recently used entries once the cache is full.
+ */
+class FragmentCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, String> fragments = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+
+    FragmentCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached fragment, rendering and caching it if it is not cached yet.
+     * The fragment is rendered outside the lock, so two requests can render the same fragment at once;
+     * both results are the same, and the last one is kept.
+     *
+     * @param fragment name of the fragment
+     * @param hotelId  id of the hotel the fragment shows
+     * @param version  version of the hotel's data, read before the data used to render the fragment
+     * @param render   renders the fragment
+     * @return the rendered fragment
+     */
+    String get(String fragment, String hotelId, long version, Supplier<String> render) {
+        String key = fragment + '|' + hotelId + '|' + version;
+        synchronized (this) {
+            String cached = fragments.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        String rendered = render.get();
+        synchronized (this) {
+            fragments.put(key, rendered);
+            if (fragments.size() > maxSize) {
+                fragments.remove(fragments.keySet().iterator().next());
+            }
+        }
+        return rendered;
+    }
+
+    //Getters
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return fragments.size();
+    }
+}
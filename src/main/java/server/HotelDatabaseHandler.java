@@ -1,19 +1,45 @@
 package server;
 
 import data.Hotel;
+import data.HotelCatalog;
+import data.HotelFacetIndex;
+import data.HotelFacetResult;
+import data.HotelFilter;
+import data.HotelRating;
+import data.NearbyHotel;
 import data.Review;
+import data.ReviewCursor;
 import hotelapp.InvalidRatingException;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * This class handles connection and operations on database for hotels operations
+ * This class handles connection and operations on database for hotels operations.
+ * Hotels are read from an in-memory HotelCatalog that is loaded once and replaced when hotels are registered,
+ * so looking up a hotel never queries the database.
  */
 public class HotelDatabaseHandler {
     private final DatabaseHandler databaseHandler = DatabaseHandler.getInstance();
     private final static HotelDatabaseHandler hotelDatabaseHandler = new HotelDatabaseHandler();
+    private final ReentrantLock catalogLock = new ReentrantLock();
+    private volatile HotelCatalog catalog;
+    // held while the facet index is built and published, and while changed ratings are applied to it
+    private final ReentrantLock facetLock = new ReentrantLock();
+    private volatile HotelFacetIndex facetIndex;
+    private final Set<String> changedRatings = ConcurrentHashMap.newKeySet();
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final Map<String, Long> hotelWrites = new ConcurrentHashMap<>();
+    private volatile long allHotelsWritten;
 
     /**
      * Returns the singleton instance of HotelDatabaseHandler.
@@ -25,53 +51,179 @@ public class HotelDatabaseHandler {
     }
 
     /**
-     * Creates the hotels table in the database if it doesn't exist.
+     * Returns the hotel catalog, loading it from the database the first time it is needed.
+     *
+     * @return the current snapshot of all hotels
      */
-    public void createHotelsTable() {
-        if (!databaseHandler.tableExists("hotels")) {
-            Statement statement;
-            try (Connection connection = databaseHandler.getConnection()) {
-                statement = connection.createStatement();
-                statement.executeUpdate(PreparedStatements.CREATE_HOTELS_TABLE);
-            } catch (SQLException ex) {
-                System.out.println(ex);
+    public HotelCatalog getCatalog() {
+        HotelCatalog current = catalog;
+        if (current == null) {
+            catalogLock.lock();
+            try {
+                current = catalog;
+                if (current == null) {
+                    current = loadCatalog();
+                }
+            } finally {
+                catalogLock.unlock();
             }
         }
+        return current;
     }
 
     /**
-     * Checks if a hotel exists in the database by its hotelId.
+     * Reads all hotels from the database into a new catalog and prints how long it took
+     * and roughly how much heap it uses.
      *
-     * @param hotelId the hotelId to check
-     * @return true if the hotel exists, false otherwise
+     * @return the new catalog
      */
-    private boolean hotelExists(String hotelId) {
-        try (Connection connection = databaseHandler.getConnection();
-             PreparedStatement statement = connection.prepareStatement(PreparedStatements.HOTEL_EXISTS_SQL)) {
+    public HotelCatalog loadCatalog() {
+        catalogLock.lock();
+        try {
+            Runtime runtime = Runtime.getRuntime();
+            long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+            long start = System.nanoTime();
+            List<Hotel> hotels = new ArrayList<>();
+            try (Connection connection = databaseHandler.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(PreparedStatements.ALL_HOTELS_SQL);
+                 ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    hotels.add(readHotel(results));
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Error loading the hotel catalog", e);
+            }
+            HotelCatalog loaded = new HotelCatalog(catalog == null ? 1 : catalog.getVersion() + 1, hotels);
+            catalog = loaded;
+            allHotelsChanged();
+            long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+            System.out.printf("Loaded %d hotels into the catalog in %.1fms, about %dKB of heap%n", loaded.size(),
+                    (System.nanoTime() - start) / 1_000_000.0, Math.max(0, usedAfter - usedBefore) / 1024);
+            return loaded;
+        } finally {
+            catalogLock.unlock();
+        }
+    }
 
-            statement.setString(1, hotelId);
-            ResultSet resultSet = statement.executeQuery();
+    /**
+     * Returns the facet index of the current catalog, building it the first time it is needed
+     * and again when the catalog was replaced.
+     * Ratings that change while the index is built cannot be applied to it, so they stay in changedRatings
+     * and are read again once the index is published.
+     *
+     * @return the facet index
+     */
+    public HotelFacetIndex getFacetIndex() {
+        HotelCatalog current = getCatalog();
+        HotelFacetIndex index = facetIndex;
+        if (index == null || index.getCatalogVersion() != current.getVersion()) {
+            facetLock.lock();
+            try {
+                index = facetIndex;
+                if (index == null || index.getCatalogVersion() != current.getVersion()) {
+                    long start = System.nanoTime();
+                    index = new HotelFacetIndex(current, getAllHotelRatings());
+                    facetIndex = index;
+                    System.out.printf("Built the hotel facet index in %.1fms%n", (System.nanoTime() - start) / 1_000_000.0);
+                }
+            } finally {
+                facetLock.unlock();
+            }
+            applyChangedRatings();
+        }
+        return index;
+    }
 
-            if (resultSet.next()) {
-                return resultSet.getInt(1) > 0;
+    /**
+     * Reads the rating summaries of the hotels in changedRatings and sets them in the facet index.
+     * The summaries are read from the database after the changes were committed and set as they are, not added
+     * as differences, so a change that the index was already built with is not counted twice. Only one thread
+     * applies changes at a time; a thread that finds the lock taken leaves its hotel to the thread holding it,
+     * which checks changedRatings again after unlocking.
+     */
+    private void applyChangedRatings() {
+        while (!changedRatings.isEmpty() && facetLock.tryLock()) {
+            try {
+                HotelFacetIndex index = facetIndex;
+                List<String> hotelIds = new ArrayList<>(changedRatings);
+                changedRatings.removeAll(hotelIds);
+                // without an index the changes are part of the snapshot the next index is built from
+                if (index == null) {
+                    continue;
+                }
+                try (Connection connection = databaseHandler.getConnection();
+                     PreparedStatement statement = connection.prepareStatement(PreparedStatements.HOTEL_RATING_SQL)) {
+                    for (String hotelId : hotelIds) {
+                        statement.setString(1, hotelId);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            HotelRating rating = resultSet.next() ? readRating(resultSet, hotelId) : null;
+                            index.updateRating(hotelId, rating == null ? 0 : rating.getRatingSum(),
+                                    rating == null ? 0 : rating.getRatingCount());
+                        }
+                    }
+                } catch (SQLException e) {
+                    // kept for the next change to retry; setting a rating twice does no harm
+                    changedRatings.addAll(hotelIds);
+                    System.out.println("Error reading changed hotel ratings: " + e.getMessage());
+                    return;
+                }
+            } finally {
+                facetLock.unlock();
             }
-        } catch (SQLException e) {
-            System.err.println("Error checking hotel existence: " + e.getMessage());
         }
-        return false;
     }
 
     /**
-     * Registers a new hotel in the database.
+     * Finds the hotels matching the filter, with the counts of every facet value.
+     *
+     * @param filter facets to filter by
+     * @return matching hotels and facet counts
+     */
+    public HotelFacetResult filterHotels(HotelFilter filter) {
+        return getFacetIndex().filter(filter);
+    }
+
+    /**
+     * Checks if a hotel exists by its hotelId.
+     *
+     * @param hotelId the hotelId to check
+     * @return true if the hotel exists, false otherwise
+     */
+    private boolean hotelExists(String hotelId) {
+        return getCatalog().getById(hotelId) != null;
+    }
+
+    /**
+     * Registers a new hotel in the database and adds it to the catalog.
      *
      * @param hotel the hotel to register
      */
     public void registerHotel(Hotel hotel) {
-        PreparedStatement statement;
-        if (!hotelExists(hotel.getId())) {
-            try (Connection connection = databaseHandler.getConnection()) {
-                try {
-                    statement = connection.prepareStatement(PreparedStatements.REGISTER_HOTEL_SQL);
+        registerHotels(List.of(hotel));
+    }
+
+    /**
+     * Registers the hotels that do not exist yet in one batch, and replaces the catalog once
+     * with a snapshot that includes them.
+     *
+     * @param hotels the hotels to register
+     */
+    public void registerHotels(List<Hotel> hotels) {
+        catalogLock.lock();
+        try {
+            List<Hotel> added = new ArrayList<>();
+            Set<String> ids = new HashSet<>();
+            for (Hotel hotel : hotels) {
+                if (!hotelExists(hotel.getId()) && ids.add(hotel.getId())) {
+                    added.add(hotel);
+                }
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+            try (Connection connection = databaseHandler.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(PreparedStatements.REGISTER_HOTEL_SQL)) {
+                for (Hotel hotel : added) {
                     statement.setString(1, hotel.getId());
                     statement.setString(2, hotel.getName());
                     statement.setString(3, hotel.getAddress());
@@ -79,108 +231,289 @@ public class HotelDatabaseHandler {
                     statement.setString(5, hotel.getState());
                     statement.setString(6, hotel.getLat());
                     statement.setString(7, hotel.getLng());
-                    statement.executeUpdate();
-
-                } catch (Exception e) {
-                    System.out.println(e);
+                    statement.addBatch();
                 }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                statement.executeBatch();
+            } catch (SQLException e) {
+                System.out.println(e);
+                loadCatalog();
+                return;
             }
+            catalog = getCatalog().withHotels(added);
+            allHotelsChanged();
+        } finally {
+            catalogLock.unlock();
         }
     }
 
     /**
-     * Calculates the average rating for a hotel based on its hotelId.
+     * Returns the average rating for a hotel from its rating summary.
      *
      * @param hotelId the hotelId of the hotel
      * @return the average rating for the hotel
      */
     public double calculateAvgRating(String hotelId) {
+        HotelRating rating = getHotelRating(hotelId);
+        return rating == null ? 0.0 : rating.getAverage();
+    }
+
+    /**
+     * Retrieves the rating summary of a hotel, which is kept up to date when reviews are added, edited or removed.
+     *
+     * @param hotelId the hotelId of the hotel
+     * @return the rating summary, or null if the hotel has never had a review
+     */
+    public HotelRating getHotelRating(String hotelId) {
         try (Connection connection = databaseHandler.getConnection();
-             PreparedStatement statement = connection.prepareStatement(PreparedStatements.AVG_RATING_SQL)) {
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.HOTEL_RATING_SQL)) {
             statement.setString(1, hotelId);
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                return resultSet.getDouble("average_rating");
+                return readRating(resultSet, hotelId);
             }
-        } catch (Exception e) {
+        } catch (SQLException e) {
             System.out.println(e);
         }
-        return 0.0;
+        return null;
     }
 
     /**
-     * Retrieves a hotel by its hotelId.
+     * Retrieves the rating summaries of all hotels that have had a review.
      *
-     * @param hotelId the hotelId of the hotel to retrieve
-     * @return the hotel with the given hotelId, or null if not found
+     * @return the rating summaries
      */
-    public Hotel getHotelById(String hotelId) {
+    private List<HotelRating> getAllHotelRatings() {
+        List<HotelRating> ratings = new ArrayList<>();
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.ALL_HOTEL_RATINGS_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                ratings.add(readRating(resultSet, resultSet.getString("hotelId")));
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+        }
+        return ratings;
+    }
+
+    /**
+     * Creates a rating summary from the current row of a result set.
+     *
+     * @param resultSet result set positioned at a hotelRatings row
+     * @param hotelId   the hotelId of the hotel
+     * @return the rating summary
+     * @throws SQLException if a column could not be read
+     */
+    private static HotelRating readRating(ResultSet resultSet, String hotelId) throws SQLException {
+        int[] histogram = new int[5];
+        for (int rating = 1; rating <= 5; rating++) {
+            histogram[rating - 1] = resultSet.getInt("rating" + rating);
+        }
+        return new HotelRating(hotelId, resultSet.getLong("ratingSum"), resultSet.getInt("ratingCount"), histogram);
+    }
+
+    /**
+     * Moves a hotel to its new rating band in the facet index after a transaction that changed its
+     * rating summary was committed.
+     *
+     * @param hotelId the hotelId of the hotel
+     */
+    void hotelRatingChanged(String hotelId) {
+        hotelChanged(hotelId);
+        changedRatings.add(hotelId);
+        applyChangedRatings();
+    }
+
+    /**
+     * Returns the version of the data shown for a hotel, which grows whenever its rating summary changes
+     * or the catalog is replaced (which can change the hotels near it). Read it before the data it stands for,
+     * so anything derived from that data is at least as new as the version.
+     *
+     * @param hotelId the hotelId of the hotel
+     * @return version of the hotel's data
+     */
+    public long getHotelVersion(String hotelId) {
+        return Math.max(allHotelsWritten, hotelWrites.getOrDefault(hotelId, 0L));
+    }
+
+    /**
+     * Gives a hotel a new version after a change to its data was committed
+     */
+    private void hotelChanged(String hotelId) {
+        hotelWrites.merge(hotelId, writeSequence.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * Gives every hotel a new version after a change that can affect all of them
+     */
+    private void allHotelsChanged() {
+        allHotelsWritten = writeSequence.incrementAndGet();
+    }
+
+    /**
+     * Adds or removes one rating from the rating summary of a hotel.
+     * It runs on the caller's connection so it can be part of the transaction that changes the review.
+     *
+     * @param connection database connection of the caller
+     * @param hotelId    the hotelId of the hotel
+     * @param rating     rating of the review, from 1 to 5
+     * @param change     1 to add the rating, -1 to remove it
+     * @throws SQLException if the update fails
+     */
+    void changeHotelRating(Connection connection, String hotelId, int rating, int change) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.CHANGE_HOTEL_RATING_SQL)) {
+            statement.setString(1, hotelId);
+            statement.setLong(2, (long) rating * change);
+            statement.setInt(3, change);
+            for (int i = 1; i <= 5; i++) {
+                statement.setInt(3 + i, i == rating ? change : 0);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Recalculates the rating summaries of all hotels from the reviews table.
+     */
+    public void rebuildHotelRatings() {
         try (Connection connection = databaseHandler.getConnection()) {
-            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.HOTEL_BY_ID_SQL)) {
-                statement.setString(1, hotelId);
-                ResultSet results = statement.executeQuery();
-                if (results.next()) {
-                    String name = results.getString("name");
-                    String address = results.getString("address");
-                    String city = results.getString("city");
-                    String state = results.getString("state");
-                    String lat = results.getString("lat");
-                    String lng = results.getString("lng");
-
-                    return new Hotel(name, hotelId, address, city, state, lat, lng);
+            connection.setAutoCommit(false);
+            try (PreparedStatement clear = connection.prepareStatement(PreparedStatements.CLEAR_HOTEL_RATINGS_SQL);
+                 PreparedStatement rebuild = connection.prepareStatement(PreparedStatements.REBUILD_HOTEL_RATINGS_SQL)) {
+                clear.executeUpdate();
+                rebuild.executeUpdate();
+                connection.commit();
+                // every rating may have changed, so the facet index is built again when it is next used;
+                // the lock waits for a build that may have read the ratings before the commit
+                facetLock.lock();
+                try {
+                    facetIndex = null;
+                } finally {
+                    facetLock.unlock();
                 }
-                return null;
+                allHotelsChanged();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            System.out.println("Error rebuilding hotel ratings: " + e.getMessage());
         }
     }
 
     /**
-     * Gets a hotel by its name.
+     * Recalculates the rating summaries of the given hotels from their reviews, in one transaction.
+     * Used after an incremental load, where rebuilding every hotel would be too expensive.
      *
-     * @param name the name of the hotel to retrieve
-     * @return the hotel with the given name, or null if not found
+     * @param hotelIds ids of the hotels whose reviews changed
      */
-    public Hotel getHotelByName(String name) {
+    public void rebuildHotelRatings(Collection<String> hotelIds) {
+        if (hotelIds.isEmpty()) {
+            return;
+        }
         try (Connection connection = databaseHandler.getConnection()) {
-
-            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.HOTEL_BY_NAME_SQL)) {
-                statement.setString(1, name);
-                ResultSet results = statement.executeQuery();
-                if (results.next()) {
-                    String hotelId = results.getString("hotelId");
-                    String address = results.getString("address");
-                    String city = results.getString("city");
-                    String state = results.getString("state");
-                    String lat = results.getString("lat");
-                    String lng = results.getString("lng");
-                    return new Hotel(name, hotelId, address, city, state, lat, lng);
+            connection.setAutoCommit(false);
+            try (PreparedStatement clear = connection.prepareStatement(PreparedStatements.CLEAR_HOTEL_RATING_SQL);
+                 PreparedStatement rebuild = connection.prepareStatement(PreparedStatements.REBUILD_HOTEL_RATING_SQL)) {
+                for (String hotelId : hotelIds) {
+                    clear.setString(1, hotelId);
+                    clear.addBatch();
+                    rebuild.setString(1, hotelId);
+                    rebuild.addBatch();
                 }
+                clear.executeBatch();
+                rebuild.executeBatch();
+                connection.commit();
+                for (String hotelId : hotelIds) {
+                    hotelChanged(hotelId);
+                }
+                changedRatings.addAll(hotelIds);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            System.out.println("Error rebuilding hotel ratings: " + e.getMessage());
+            return;
         }
-        return null;
+        applyChangedRatings();
+    }
+
+    /**
+     * Checks the rating summaries against the reviews table and rebuilds them if any hotel does not match.
+     *
+     * @return the number of hotels whose rating summary did not match their reviews
+     */
+    public int verifyHotelRatings() {
+        int inconsistent = 0;
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.INCONSISTENT_HOTEL_RATINGS_SQL)) {
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                inconsistent = resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.out.println("Error checking hotel ratings: " + e.getMessage());
+            return inconsistent;
+        }
+        if (inconsistent > 0) {
+            System.out.println("Rebuilding rating summaries, " + inconsistent + " hotels did not match their reviews");
+            rebuildHotelRatings();
+        }
+        return inconsistent;
     }
 
     /**
-     * Retrieves all reviews for a hotel with pagination.
+     * Retrieves a hotel by its hotelId.
+     *
+     * @param hotelId the hotelId of the hotel to retrieve
+     * @return the hotel with the given hotelId, or null if not found
+     */
+    public Hotel getHotelById(String hotelId) {
+        return getCatalog().getById(hotelId);
+    }
+
+    /**
+     * Gets a hotel by its name.
+     *
+     * @param name the name of the hotel to retrieve
+     * @return the hotel with the given name, or null if not found
+     */
+    public Hotel getHotelByName(String name) {
+        return getCatalog().getByName(name);
+    }
+
+    /**
+     * Retrieves a page of reviews for a hotel using keyset pagination on (date, reviewId).
+     * Reviews are sorted from newest to oldest, and the like count of each review is loaded in the same query.
+     * One more review than the limit is read so the caller can tell whether there is another page.
      *
      * @param hotelId the hotelId of the hotel to retrieve reviews for
+     * @param cursor  position to start from, or null for the newest reviews
+     * @param forward true to read reviews older than the cursor, false to read reviews newer than the cursor
      * @param limit   the maximum number of reviews to retrieve
-     * @param offset  the offset to start retrieving reviews from
-     * @return a list of reviews for the hotel
+     * @return up to limit + 1 reviews, sorted from newest to oldest
      */
-    public List<Review> getAllHotelReviews(String hotelId, int limit, int offset) {
+    public List<Review> getHotelReviews(String hotelId, ReviewCursor cursor, boolean forward, int limit) {
+        String sql;
+        if (cursor == null) {
+            sql = PreparedStatements.FIRST_REVIEWS_SQL;
+        } else if (forward) {
+            sql = PreparedStatements.REVIEWS_AFTER_CURSOR_SQL;
+        } else {
+            sql = PreparedStatements.REVIEWS_BEFORE_CURSOR_SQL;
+        }
         List<Review> reviews = new ArrayList<>();
         try (Connection connection = databaseHandler.getConnection();
-             PreparedStatement statement = connection.prepareStatement(PreparedStatements.ALL_REVIEWS_SQL)) {
-            statement.setString(1, hotelId);
-            statement.setInt(2, limit);
-            statement.setInt(3, offset);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            statement.setString(index++, hotelId);
+            if (cursor != null) {
+                statement.setTimestamp(index++, cursor.getDate());
+                statement.setTimestamp(index++, cursor.getDate());
+                statement.setInt(index++, cursor.getReviewId());
+            }
+            statement.setInt(index, limit + 1);
 
             ResultSet results = statement.executeQuery();
             while (results.next()) {
@@ -190,63 +523,73 @@ public class HotelDatabaseHandler {
                 String text = results.getString("text");
                 String nickname = results.getString("nickname");
                 String date = results.getString("date");
-                reviews.add(new Review(hotelId, String.valueOf(reviewId), rating, title, text, nickname, date));
+                Review review = new Review(hotelId, String.valueOf(reviewId), rating, title, text, nickname, date);
+                review.setLikeCount(results.getInt("likesCount"));
+                reviews.add(review);
             }
         } catch (SQLException | InvalidRatingException e) {
-            throw new RuntimeException("Error retrieving all hotels", e);
+            throw new RuntimeException("Error retrieving reviews", e);
+        }
+        if (cursor != null && !forward) {
+            Collections.reverse(reviews);
         }
         return reviews;
     }
 
     /**
-     * Retrieves the names of all hotels in the database.
+     * Retrieves the names of all hotels.
      *
      * @return a list of hotel names
      */
     public List<String> getAllHotelsName() {
-        List<String> hotelsName = new ArrayList<>();
-        try (Connection connection = databaseHandler.getConnection()) {
-            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.ALL_HOTELS_NAME_SQL)) {
-                ResultSet results = statement.executeQuery();
-                while (results.next()) {
-                    String name = results.getString("name");
-                    hotelsName.add(name);
-                }
-                return hotelsName;
-            } catch (SQLException e) {
-                System.out.println(e);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        return null;
+        return getCatalog().getNames();
     }
 
+    /**
+     * Finds hotels by the words or a part of their name.
+     *
+     * @param keyword one or more words of the hotel name
+     * @return matching hotels, best matches first
+     */
+    public List<Hotel> searchHotels(String keyword) {
+        return getCatalog().search(keyword);
+    }
+
+    /**
+     * Finds the hotels nearest to a hotel.
+     *
+     * @param hotelId id of the hotel
+     * @param k       number of hotels
+     * @return the k nearest other hotels with their distance, nearest first
+     */
+    public List<NearbyHotel> getNearbyHotels(String hotelId, int k) {
+        return getCatalog().nearest(hotelId, k);
+    }
 
     /**
-     * Retrieves all hotels from the database.
+     * Retrieves all hotels.
      *
      * @return a list of all hotels
      */
     public List<Hotel> getAllHotels() {
-        List<Hotel> hotels = new ArrayList<>();
-        try (Connection connection = databaseHandler.getConnection();
-             PreparedStatement statement = connection.prepareStatement(PreparedStatements.ALL_HOTELS_SQL);
-             ResultSet results = statement.executeQuery()) {
-            while (results.next()) {
-                String id = results.getString("hotelId");
-                String name = results.getString("name");
-                String address = results.getString("address");
-                String city = results.getString("city");
-                String state = results.getString("state");
-                String lat = results.getString("lat");
-                String lng = results.getString("lng");
-                hotels.add(new Hotel(name, id, address, city, state, lat, lng));
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error retrieving all hotels", e);
-        }
-        return hotels;
+        return getCatalog().getHotels();
     }
 
+    /**
+     * Creates a hotel from the current row of a result set.
+     *
+     * @param results result set positioned at a hotel row
+     * @return the hotel
+     * @throws SQLException if a column could not be read
+     */
+    private static Hotel readHotel(ResultSet results) throws SQLException {
+        String id = results.getString("hotelId");
+        String name = results.getString("name");
+        String address = results.getString("address");
+        String city = results.getString("city");
+        String state = results.getString("state");
+        String lat = results.getString("lat");
+        String lng = results.getString("lng");
+        return new Hotel(name, id, address, city, state, lat, lng);
+    }
 }
@@ -0,0 +1,69 @@
+package server;
+
+import data.IngestedFile;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class handles the database operations on the manifest of ingested dataset files
+ */
+public class IngestDatabaseHandler {
+    private final DatabaseHandler databaseHandler = DatabaseHandler.getInstance();
+    private static final IngestDatabaseHandler ingestDatabaseHandler = new IngestDatabaseHandler();
+
+    /**
+     * Returns the singleton instance of IngestDatabaseHandler.
+     *
+     * @return the singleton instance of IngestDatabaseHandler
+     */
+    public static IngestDatabaseHandler getInstance() {
+        return ingestDatabaseHandler;
+    }
+
+    /**
+     * Reads the manifest of ingested files.
+     *
+     * @return map from file path to the recorded file
+     */
+    public Map<String, IngestedFile> getIngestedFiles() {
+        Map<String, IngestedFile> files = new HashMap<>();
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.INGESTED_FILES_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                IngestedFile file = new IngestedFile(resultSet.getString("path"), resultSet.getLong("size"),
+                        resultSet.getLong("modified"), resultSet.getString("hash"));
+                files.put(file.getPath(), file);
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+        }
+        return files;
+    }
+
+    /**
+     * Records the given files in the manifest in one batch.
+     *
+     * @param files ingested files
+     * @throws SQLException if the manifest could not be updated
+     */
+    public void registerIngestedFiles(List<IngestedFile> files) throws SQLException {
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.UPSERT_INGESTED_FILE_SQL)) {
+            for (IngestedFile file : files) {
+                statement.setString(1, file.getPath());
+                statement.setLong(2, file.getSize());
+                statement.setLong(3, file.getModified());
+                statement.setString(4, file.getHash());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
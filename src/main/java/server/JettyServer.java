@@ -2,8 +2,8 @@ package server;
 
 
 import hotelapp.HotelLoader;
+import hotelapp.IngestProgress;
 import hotelapp.ReviewData;
-import org.apache.velocity.app.VelocityEngine;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.HandlerList;
@@ -12,6 +12,8 @@ import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import servlets.*;
 
+import java.io.IOException;
+
 /**
  * This class uses Jetty & servlets to implement a web server responding to Http GET requests
  */
@@ -20,12 +22,30 @@ public class JettyServer {
     private final ServletContextHandler handler;
     private final ReviewData threadSafeReviewData;
     private final HotelLoader hotelLoader;
+    private final IngestProgress ingestProgress;
+    private final TemplateRenderer templateRenderer;
 
     public JettyServer(int port, ReviewData threadSafeReviewData, HotelLoader hotelLoader) {
+        this(port, threadSafeReviewData, hotelLoader, new IngestProgress(), false);
+    }
+
+    /**
+     * Creates the server
+     *
+     * @param port                 port to listen on
+     * @param threadSafeReviewData review data used by the servlets
+     * @param hotelLoader          hotel data used by the servlets
+     * @param ingestProgress       progress of the review load running in the background
+     * @param devMode              true to check the templates for changes while the server runs
+     */
+    public JettyServer(int port, ReviewData threadSafeReviewData, HotelLoader hotelLoader,
+                       IngestProgress ingestProgress, boolean devMode) {
         jettyServer = new Server(port);
         handler = new ServletContextHandler(ServletContextHandler.SESSIONS);
         this.threadSafeReviewData = threadSafeReviewData;
         this.hotelLoader = hotelLoader;
+        this.ingestProgress = ingestProgress;
+        this.templateRenderer = new TemplateRenderer(devMode);
     }
 
     /**
@@ -40,25 +60,31 @@ public class JettyServer {
         handler.addServlet(new ServletHolder(new UsernameValidationServlet()), "/validateUsername");
         handler.addServlet(new ServletHolder(new PasswordValidationServlet()), "/validatePassword");
         handler.addServlet(new ServletHolder(new HotelServlet(hotelLoader)), "/search");
-        handler.addServlet(new ServletHolder(new HotelsDetailsServlet()), "/hotelDetails");
+        handler.addServlet(new ServletHolder(new HotelsDetailsServlet(ingestProgress)), "/hotelDetails");
         handler.addServlet(new ServletHolder(new AddReviewServlet(threadSafeReviewData)), "/addReview");
-        handler.addServlet(new ServletHolder(new EditReviewServlet()), "/editReview");
-        handler.addServlet(new ServletHolder(new DeleteReviewServlet()), "/deleteReview");
+        handler.addServlet(new ServletHolder(new EditReviewServlet(threadSafeReviewData)), "/editReview");
+        handler.addServlet(new ServletHolder(new DeleteReviewServlet(threadSafeReviewData)), "/deleteReview");
         handler.addServlet(new ServletHolder(new HotelReviewsServlet(threadSafeReviewData)), "/hotelReviews");
         handler.addServlet(new ServletHolder(new LikeReviewServlet()), "/likeReview");
         handler.addServlet(new ServletHolder(new ExpediaLinkServlet()), "/expediaLink");
         handler.addServlet(new ServletHolder(new DashboardServlet()), "/dashboard");
+        handler.addServlet(new ServletHolder(new IngestStatusServlet(ingestProgress)), "/api/ingest/status");
+        handler.addServlet(new ServletHolder(new SuggestServlet()), "/api/suggest");
+        handler.addServlet(new ServletHolder(new ReviewSearchServlet(threadSafeReviewData)), "/api/reviews/search");
+        handler.addServlet(new ServletHolder(new NearbyHotelsServlet()), "/api/hotels/nearby");
+        handler.addServlet(new ServletHolder(new TemplateMetricsServlet(templateRenderer)), "/api/templates/metrics");
 
     }
 
     /**
-     * Sets up the server, including the Velocity engine for template rendering and configuring the
+     * Sets up the server, including parsing the Velocity templates for rendering and configuring the
      * resource handler to serve static files.
+     *
+     * @throws IOException if the templates cannot be read
      */
-    private void setUp() {
-        VelocityEngine velocity = new VelocityEngine();
-        velocity.init();
-        handler.setAttribute("velocityEngine", velocity);
+    private void setUp() throws IOException {
+        templateRenderer.preloadTemplates();
+        handler.setAttribute("templateRenderer", templateRenderer);
 
         ResourceHandler resourceHandler = new ResourceHandler();
         resourceHandler.setDirectoriesListed(true);
@@ -70,13 +96,21 @@ public class JettyServer {
     }
 
     /**
-     * Function that starts the server
+     * Function that starts the server without waiting for it to stop
      *
      * @throws Exception throws exception if access failed
      */
     public void start() throws Exception {
         setUp();
         jettyServer.start();
+    }
+
+    /**
+     * Waits until the server stops
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void join() throws InterruptedException {
         jettyServer.join();
     }
 }
\ No newline at end of file
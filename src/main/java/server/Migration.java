@@ -0,0 +1,65 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A numbered change to the database schema, made of one or more SQL statements.
+ * The checksum of the statements is stored when the migration is applied so that
+ * later edits to an already applied migration can be detected.
+ */
+public class Migration {
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+
+    public Migration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.of(statements);
+    }
+
+    //Getters
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Calculates the SHA-256 checksum of the migration statements.
+     *
+     * @return hex encoded checksum
+     */
+    public String getChecksum() {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String statement : statements) {
+                md.update(statement.getBytes(StandardCharsets.UTF_8));
+                md.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Prints the version and description of the migration
+     *
+     * @return migration information
+     */
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
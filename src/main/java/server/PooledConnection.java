@@ -0,0 +1,211 @@
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wraps a physical connection owned by the ConnectionPool.
+ * Every checkout hands out a new proxy so a caller that closes its connection twice,
+ * or keeps using it after closing it, cannot affect the next borrower.
+ * Statements a caller forgot to close are closed when the connection returns to the pool,
+ * except for statements prepared from a plain SQL string, which stay prepared in the
+ * connection's StatementCache for the next borrower.
+ */
+class PooledConnection {
+    private final Connection connection;
+    private final ConnectionPool pool;
+    private final StatementCache statementCache;
+    private final int defaultIsolation;
+    private final boolean defaultReadOnly;
+    private final String defaultCatalog;
+    private final String defaultSchema;
+    private volatile long lastUsed = System.currentTimeMillis();
+    // set when a borrower changed a session setting that reset() has to put back
+    private volatile boolean settingsChanged = false;
+
+    /**
+     * Wraps a physical connection and records its session settings, so they can be restored when the
+     * connection goes back to the pool
+     *
+     * @param connection         the physical connection
+     * @param pool               pool owning the connection
+     * @param statementCacheSize maximum number of cached prepared statements
+     * @throws SQLException if the session settings could not be read
+     */
+    PooledConnection(Connection connection, ConnectionPool pool, int statementCacheSize) throws SQLException {
+        this.connection = connection;
+        this.pool = pool;
+        this.statementCache = new StatementCache(connection, pool, statementCacheSize);
+        this.defaultIsolation = connection.getTransactionIsolation();
+        this.defaultReadOnly = connection.isReadOnly();
+        this.defaultCatalog = connection.getCatalog();
+        this.defaultSchema = connection.getSchema();
+    }
+
+    /**
+     * Creates the connection handle given to a caller of the pool.
+     *
+     * @return proxy connection that returns to the pool on close
+     */
+    Connection checkout() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handle());
+    }
+
+    /**
+     * Checks whether the physical connection is still usable.
+     *
+     * @param timeoutSec seconds to wait for the database to answer
+     * @return true if the connection is valid
+     */
+    boolean isValid(int timeoutSec) {
+        try {
+            return connection.isValid(timeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Restores the connection to its default state before it goes back to the idle list: an open transaction
+     * is rolled back, and the isolation level, read-only flag, catalog and schema are set back to the values
+     * the connection was opened with if a borrower changed them.
+     *
+     * @return true if the connection can be reused
+     */
+    boolean reset() {
+        lastUsed = System.currentTimeMillis();
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (settingsChanged) {
+                connection.setTransactionIsolation(defaultIsolation);
+                connection.setReadOnly(defaultReadOnly);
+                if (defaultCatalog != null) {
+                    connection.setCatalog(defaultCatalog);
+                }
+                if (defaultSchema != null) {
+                    connection.setSchema(defaultSchema);
+                }
+                settingsChanged = false;
+            }
+            connection.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes the physical connection.
+     */
+    void closePhysical() {
+        statementCache.closeAll();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println(e);
+        }
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Forwards calls to the physical connection until the handle is closed.
+     */
+    private class Handle implements InvocationHandler {
+        private boolean closed = false;
+        private final List<Statement> openStatements = new ArrayList<>();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        closeStatements();
+                        statementCache.releaseAll();
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || connection.isClosed();
+                case "prepareStatement":
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (statementCache.isEnabled() && args.length == 1) {
+                        PreparedStatement cached = statementCache.prepare((String) args[0]);
+                        if (cached != null) {
+                            return cached;
+                        }
+                    }
+                    break;
+                case "setTransactionIsolation":
+                case "setReadOnly":
+                case "setCatalog":
+                case "setSchema":
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    settingsChanged = true;
+                    break;
+                case "unwrap":
+                case "isWrapperFor":
+                    // the physical connection must not leak to a caller that already gave it back
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + connection;
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+            }
+            try {
+                Object result = method.invoke(connection, args);
+                if (result instanceof Statement) {
+                    openStatements.add((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Closes the statements created through this handle.
+         */
+        private void closeStatements() {
+            for (Statement statement : openStatements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    System.out.println(e);
+                }
+            }
+            openStatements.clear();
+        }
+    }
+}
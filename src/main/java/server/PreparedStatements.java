@@ -1,5 +1,7 @@
 package server;
 
+import java.util.Collections;
+
 public class PreparedStatements {
     /**
      * Prepared Statements
@@ -45,17 +47,56 @@ public class PreparedStatements {
 
     // SQL query for creating the expediaLinks table to store links for users
     public static final String CREATE_TABLE_EXPEDIA_LINKS =
-            "CREATE TABLE expediaLinks (" +
+            "CREATE TABLE if not exists expediaLinks (" +
                     " id INT AUTO_INCREMENT PRIMARY KEY," +
                     " username VARCHAR(50) NOT NULL," +
                     " link TEXT NOT NULL);";
 
+    // SQL query for creating the table that records the applied schema migrations
+    public static final String CREATE_SCHEMA_MIGRATIONS_TABLE =
+            "CREATE TABLE if not exists schemaMigrations (" +
+                    " version INTEGER PRIMARY KEY," +
+                    " description VARCHAR(200) NOT NULL," +
+                    " checksum CHAR(64) NOT NULL," +
+                    " appliedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP);";
+
+    // SQL query to retrieve the applied schema migrations
+    public static final String APPLIED_MIGRATIONS_SQL =
+            "SELECT version, checksum FROM schemaMigrations;";
+
+    // SQL query to check if an index exists on a table of the current database
+    public static final String INDEX_EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?);";
+
+    // SQL query to check if a column exists on a table of the current database
+    public static final String COLUMN_EXISTS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?);";
+
+    // SQL query to record an applied schema migration
+    public static final String RECORD_MIGRATION_SQL =
+            "INSERT INTO schemaMigrations (version, description, checksum) " +
+                    "VALUES (?, ?, ?);";
 
     // SQL query to insert a new user into the database
     public static final String REGISTER_USER_SQL =
             "INSERT INTO users (username, password, usersalt, lastLogin) " +
                     "VALUES (?, ?, ?,?);";
 
+    // SQL query to register a user created from the dataset, skipping users that already exist
+    public static final String REGISTER_USER_IGNORE_SQL =
+            "INSERT IGNORE INTO users (username, password, usersalt, lastLogin) " +
+                    "VALUES (?, ?, ?, ?);";
+
+    // Number of usernames looked up at once by EXISTING_USERS_SQL
+    public static final int EXISTING_USERS_LOOKUP_SIZE = 100;
+
+    // SQL query to find which of EXISTING_USERS_LOOKUP_SIZE usernames already exist
+    public static final String EXISTING_USERS_SQL =
+            "SELECT username FROM users WHERE username IN (" +
+                    String.join(", ", Collections.nCopies(EXISTING_USERS_LOOKUP_SIZE, "?")) + ");";
+
     // SQL query to register a new hotel in the database
     public static final String REGISTER_HOTEL_SQL =
             "INSERT INTO hotels (hotelId, name, address, city, state,lat,lng) " +
@@ -66,6 +107,43 @@ public class PreparedStatements {
             "INSERT INTO reviews (hotelId, rating, title, text, nickname,date) " +
                     " VALUES (?, ?, ?, ?, ?, ?);";
 
+    // SQL query to insert a review from the dataset, or update it if a review with the same dataset reviewId exists;
+    // the title, text, rating and date of a review that was edited on the website are kept
+    public static final String UPSERT_DATASET_REVIEW_SQL =
+            "INSERT INTO reviews (sourceReviewId, hotelId, rating, title, text, nickname, date) " +
+                    " VALUES (?, ?, ?, ?, ?, ?, ?) AS new" +
+                    " ON DUPLICATE KEY UPDATE hotelId = new.hotelId, nickname = new.nickname," +
+                    " rating = IF(reviews.edited, reviews.rating, new.rating)," +
+                    " title = IF(reviews.edited, reviews.title, new.title)," +
+                    " text = IF(reviews.edited, reviews.text, new.text)," +
+                    " date = IF(reviews.edited, reviews.date, new.date);";
+
+    // SQL query to check if there are dataset reviews that were stored before the dataset reviewId was kept
+    // (marked by migration 9) and have not been matched yet
+    public static final String UNCLAIMED_REVIEWS_EXIST_SQL =
+            "SELECT EXISTS (SELECT 1 FROM reviews WHERE legacy);";
+
+    // SQL query to give a dataset review stored before its dataset reviewId was kept that reviewId, so the upsert
+    // that follows updates it instead of inserting it again; IGNORE skips the row if the reviewId is already taken
+    public static final String CLAIM_REVIEW_SQL =
+            "UPDATE IGNORE reviews SET sourceReviewId = ?, legacy = FALSE" +
+                    " WHERE legacy AND hotelId = ? AND nickname = ? AND date = ? AND title <=> ?" +
+                    " LIMIT 1;";
+
+    // SQL query to stop matching the old reviews that no dataset review claimed after every file was loaded
+    public static final String RELEASE_UNCLAIMED_REVIEWS_SQL =
+            "UPDATE reviews SET legacy = FALSE WHERE legacy;";
+
+    // SQL query to retrieve the manifest of ingested dataset files
+    public static final String INGESTED_FILES_SQL =
+            "SELECT path, size, modified, hash FROM ingestedFiles;";
+
+    // SQL query to record an ingested dataset file, or update it if the file was ingested before
+    public static final String UPSERT_INGESTED_FILE_SQL =
+            "INSERT INTO ingestedFiles (path, size, modified, hash) VALUES (?, ?, ?, ?) AS new" +
+                    " ON DUPLICATE KEY UPDATE size = new.size, modified = new.modified," +
+                    " hash = new.hash, ingestedAt = CURRENT_TIMESTAMP;";
+
     // SQL query to add a like for a review in the reviewsLikes table
     public static final String ADD_LIKE_SQL =
             "INSERT INTO  reviewsLikes(username, reviewId) " +
@@ -76,12 +154,52 @@ public class PreparedStatements {
             "INSERT INTO  expediaLinks(username, link) " +
                     " VALUES (?, ?);";
 
-    // SQL query to retrieve all reviews for a specific hotel
-    public static final String ALL_REVIEWS_SQL =
-            "SELECT * FROM reviews" +
-                    " WHERE hotelId=?" +
-                    " ORDER BY date DESC" +
-                    " LIMIT ? OFFSET ?;";
+    // Columns of a review together with the number of likes of the review
+    private static final String REVIEW_WITH_LIKES_COLUMNS =
+            "SELECT r.*," +
+                    " (SELECT COUNT(*) FROM reviewsLikes l WHERE l.reviewId = r.reviewId) AS likesCount" +
+                    " FROM reviews r";
+
+    // Number of reviews looked up at once by REVIEW_IDS_BY_SOURCE_SQL and REVIEWS_BY_ID_SQL
+    public static final int REVIEW_LOOKUP_SIZE = 100;
+
+    // SQL query to find the database ids of REVIEW_LOOKUP_SIZE dataset reviews by their dataset reviewId
+    public static final String REVIEW_IDS_BY_SOURCE_SQL =
+            "SELECT reviewId, sourceReviewId FROM reviews WHERE sourceReviewId IN (" +
+                    String.join(", ", Collections.nCopies(REVIEW_LOOKUP_SIZE, "?")) + ");";
+
+    // SQL query to retrieve REVIEW_LOOKUP_SIZE reviews by their reviewId
+    public static final String REVIEWS_BY_ID_SQL =
+            REVIEW_WITH_LIKES_COLUMNS +
+                    " WHERE r.reviewId IN (" + String.join(", ", Collections.nCopies(REVIEW_LOOKUP_SIZE, "?")) + ");";
+
+    // SQL query to read the searchable text of all reviews
+    public static final String REVIEW_TEXTS_SQL =
+            "SELECT reviewId, hotelId, title, text FROM reviews;";
+
+    // SQL query to retrieve the newest reviews for a specific hotel
+    public static final String FIRST_REVIEWS_SQL =
+            REVIEW_WITH_LIKES_COLUMNS +
+                    " WHERE r.hotelId=?" +
+                    " ORDER BY r.date DESC, r.reviewId DESC" +
+                    " LIMIT ?;";
+
+    // SQL query to retrieve the reviews for a specific hotel that are older than a cursor (date, reviewId).
+    // The comparison is written out instead of (r.date, r.reviewId) < (?, ?), which MySQL does not use
+    // as a range on the (hotelId, date) index; the parameters are date, date, reviewId
+    public static final String REVIEWS_AFTER_CURSOR_SQL =
+            REVIEW_WITH_LIKES_COLUMNS +
+                    " WHERE r.hotelId=? AND r.date <= ? AND (r.date < ? OR r.reviewId < ?)" +
+                    " ORDER BY r.date DESC, r.reviewId DESC" +
+                    " LIMIT ?;";
+
+    // SQL query to retrieve the reviews for a specific hotel that are newer than a cursor (date, reviewId),
+    // oldest first; the parameters are date, date, reviewId like REVIEWS_AFTER_CURSOR_SQL
+    public static final String REVIEWS_BEFORE_CURSOR_SQL =
+            REVIEW_WITH_LIKES_COLUMNS +
+                    " WHERE r.hotelId=? AND r.date >= ? AND (r.date > ? OR r.reviewId > ?)" +
+                    " ORDER BY r.date ASC, r.reviewId ASC" +
+                    " LIMIT ?;";
 
     // SQL query to retrieve all links for a specific user
     public static final String ALL_LINKS_SQL =
@@ -116,15 +234,61 @@ public class PreparedStatements {
             "SELECT COUNT(*) FROM expediaLinks" +
                     " WHERE username=? AND link=? ";
 
-    // SQL query to get the average rating of a specific hotel
-    public static final String AVG_RATING_SQL =
-            "SELECT AVG(rating) AS average_rating " +
-                    "FROM reviews " +
+    // SQL query to get the rating summary of a specific hotel
+    public static final String HOTEL_RATING_SQL =
+            "SELECT ratingSum, ratingCount, rating1, rating2, rating3, rating4, rating5 " +
+                    "FROM hotelRatings " +
                     "WHERE hotelId = ?;";
 
-    // SQL query to check if a hotel exists by hotelId
-    public static final String HOTEL_EXISTS_SQL =
-            "SELECT COUNT(*) FROM hotels WHERE hotelId = ?;";
+    // SQL query to get the rating summaries of all hotels
+    public static final String ALL_HOTEL_RATINGS_SQL =
+            "SELECT hotelId, ratingSum, ratingCount, rating1, rating2, rating3, rating4, rating5 " +
+                    "FROM hotelRatings;";
+
+    // SQL query to add a change of ratings (sum, count and count per rating) to the rating summary of a hotel
+    public static final String CHANGE_HOTEL_RATING_SQL =
+            "INSERT INTO hotelRatings (hotelId, ratingSum, ratingCount, rating1, rating2, rating3, rating4, rating5) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?) AS new " +
+                    "ON DUPLICATE KEY UPDATE ratingSum = hotelRatings.ratingSum + new.ratingSum, " +
+                    "ratingCount = hotelRatings.ratingCount + new.ratingCount, " +
+                    "rating1 = hotelRatings.rating1 + new.rating1, rating2 = hotelRatings.rating2 + new.rating2, " +
+                    "rating3 = hotelRatings.rating3 + new.rating3, rating4 = hotelRatings.rating4 + new.rating4, " +
+                    "rating5 = hotelRatings.rating5 + new.rating5;";
+
+    // SQL query to remove the rating summaries of all hotels
+    public static final String CLEAR_HOTEL_RATINGS_SQL =
+            "DELETE FROM hotelRatings;";
+
+    // SQL query to calculate the rating summaries of all hotels from their reviews
+    public static final String REBUILD_HOTEL_RATINGS_SQL =
+            "INSERT INTO hotelRatings (hotelId, ratingSum, ratingCount, rating1, rating2, rating3, rating4, rating5) " +
+                    "SELECT hotelId, SUM(rating), COUNT(*), SUM(rating = 1), SUM(rating = 2), " +
+                    "SUM(rating = 3), SUM(rating = 4), SUM(rating = 5) " +
+                    "FROM reviews GROUP BY hotelId;";
+
+    // SQL query to delete the rating summary of one hotel
+    public static final String CLEAR_HOTEL_RATING_SQL =
+            "DELETE FROM hotelRatings WHERE hotelId = ?;";
+
+    // SQL query to calculate the rating summary of one hotel from its reviews
+    public static final String REBUILD_HOTEL_RATING_SQL =
+            "INSERT INTO hotelRatings (hotelId, ratingSum, ratingCount, rating1, rating2, rating3, rating4, rating5) " +
+                    "SELECT hotelId, SUM(rating), COUNT(*), SUM(rating = 1), SUM(rating = 2), " +
+                    "SUM(rating = 3), SUM(rating = 4), SUM(rating = 5) " +
+                    "FROM reviews WHERE hotelId = ? GROUP BY hotelId;";
+
+    // SQL query to count the hotels whose rating summary does not match their reviews
+    public static final String INCONSISTENT_HOTEL_RATINGS_SQL =
+            "SELECT (SELECT COUNT(*) FROM (" +
+                    "SELECT hotelId, SUM(rating) AS ratingSum, COUNT(*) AS ratingCount FROM reviews GROUP BY hotelId) r " +
+                    "LEFT JOIN hotelRatings h ON h.hotelId = r.hotelId " +
+                    "WHERE h.hotelId IS NULL OR h.ratingSum <> r.ratingSum OR h.ratingCount <> r.ratingCount) + " +
+                    "(SELECT COUNT(*) FROM hotelRatings h WHERE h.ratingCount <> 0 " +
+                    "AND NOT EXISTS (SELECT 1 FROM reviews r WHERE r.hotelId = h.hotelId));";
+
+    // SQL query to retrieve and lock the hotel and rating of a review
+    public static final String REVIEW_RATING_FOR_UPDATE_SQL =
+            "SELECT hotelId, rating FROM reviews WHERE reviewId = ? FOR UPDATE;";
 
     // SQL query to check if a review exists with a specific set of parameters
     public static final String REVIEW_EXISTS_SQL =
@@ -141,35 +305,22 @@ public class PreparedStatements {
     // SQL query to edit an existing review
     public static final String EDITE_REVIEW_SQL =
             "UPDATE reviews " +
-                    "SET title = ?, text = ?, date = ? " +
+                    "SET title = ?, text = ?, date = ?, rating = ?, edited = TRUE " +
                     "WHERE reviewId = ?;";
 
     //SQL query to retrieve the salt for a specific user
     public static final String SALT_SQL =
             "SELECT usersalt FROM users WHERE username = ?;";
 
-    // SQL query to retrieve hotel details by hotelId
-    public static final String HOTEL_BY_ID_SQL =
-            "SELECT name, address, city, state, lat, lng" +
-                    " FROM hotels where hotelId = ?;";
-
-    // SQL query to retrieve all hotel names
-    public static final String ALL_HOTELS_NAME_SQL =
-            "SELECT name From hotels ;";
-
     // SQL query to retrieve all hotel details
     public static final String ALL_HOTELS_SQL =
             "SELECT hotelId, name, address, city, state, lat, lng FROM hotels";
 
-    // SQL query to retrieve hotel details by hotel name
-    public static final String HOTEL_BY_NAME_SQL = "SELECT * FROM hotels WHERE name = ?";
-
     // SQL query to authenticate a user by username and password
     public static final String AUTH_SQL =
             "SELECT username FROM users " +
                     "WHERE username = ? AND password = ?;";
 
-
     // SQL query to check if a username already exists in the database
     public static final String USER_EXISTS_SQL =
             "SELECT COUNT(*) FROM users " +
@@ -1,8 +1,13 @@
 package server;
 
 import data.Review;
+import data.ReviewSearchIndex;
+import hotelapp.InvalidRatingException;
 
 import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * ReviewsDatabaseHandler handles interactions with the 'reviews' table in the database.
@@ -10,7 +15,10 @@ import java.sql.*;
  */
 public class ReviewsDatabaseHandler {
     private final DatabaseHandler databaseHandler = DatabaseHandler.getInstance();
+    private final HotelDatabaseHandler hotelDatabaseHandler = HotelDatabaseHandler.getInstance();
     private final static ReviewsDatabaseHandler rwDbHandler = new ReviewsDatabaseHandler();
+    // null until checked; false once there are no reviews left that a dataset review could claim
+    private volatile Boolean unclaimedReviews;
 
     /**
      * Returns the singleton instance of ReviewsDatabaseHandler
@@ -22,63 +30,243 @@ public class ReviewsDatabaseHandler {
     }
 
     /**
-     * Creates the 'reviews' table in the database if it doesn't already exist.
+     * Registers a dataset review in the database using the data from the Review object.
+     * The review is identified by its reviewId from the dataset, so registering it again updates the existing row.
+     * A review that was edited on the website keeps its edited title, text, rating and date.
+     *
+     * @param review The review object to be registered
      */
-    public void createReviewsTable() {
-        if (!databaseHandler.tableExists("reviews")) {
-            Statement statement;
-            try (Connection connection = databaseHandler.getConnection()) {
-                statement = connection.createStatement();
-                statement.executeUpdate(PreparedStatements.CREATE_REVIEWS_TABLE);
-            } catch (SQLException ex) {
-                System.out.println(ex);
+    public void registerDatesetReview(Review review) {
+        try (Connection connection = databaseHandler.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.UPSERT_DATASET_REVIEW_SQL)) {
+                claimReviews(connection, List.of(review));
+                setDatasetReview(statement, review);
+                statement.executeUpdate();
+            } catch (Exception e) {
+                System.out.println(e);
             }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
     }
 
     /**
-     * Registers a new review in the database using the data from the Review object.
-     * The method checks if the review already exists before inserting it.
+     * Sets the parameters of UPSERT_DATASET_REVIEW_SQL for a dataset review.
      *
-     * @param review The review object to be registered
+     * @param statement prepared statement
+     * @param review    dataset review
+     * @throws SQLException if a parameter could not be set
      */
-    public void registerDatesetReview(Review review) {
-        PreparedStatement statement;
-        if (!reviewExists(review, false)) {
-            try (Connection connection = databaseHandler.getConnection()) {
-                try {
-                    statement = connection.prepareStatement(PreparedStatements.REGISTER_REVIEW_SQL);
-                    statement.setString(1, review.getHotelId());
-                    statement.setInt(2, review.getRating());
-                    statement.setString(3, review.getTitle());
-                    statement.setString(4, review.getText());
-                    statement.setString(5, review.getNickName());
-                    statement.setTimestamp(6, java.sql.Timestamp.valueOf(review.getDate() + " 00:00:00"));
-                    statement.executeUpdate();
+    private void setDatasetReview(PreparedStatement statement, Review review) throws SQLException {
+        statement.setString(1, review.getReviewId());
+        statement.setString(2, review.getHotelId());
+        statement.setInt(3, review.getRating());
+        statement.setString(4, review.getTitle());
+        statement.setString(5, review.getText());
+        statement.setString(6, review.getNickName());
+        statement.setTimestamp(7, java.sql.Timestamp.valueOf(review.getDate() + " 00:00:00"));
+    }
 
-                } catch (Exception e) {
-                    System.out.println(e);
+    /**
+     * Registers a batch of dataset reviews with JDBC batching in a single transaction.
+     * Like registerDatesetReview, reviews that are already stored are updated instead of inserted again,
+     * so loading the same files twice is safe. This includes reviews stored before their dataset reviewId was
+     * kept, which are claimed first (see claimReviews).
+     *
+     * @param reviews reviews parsed from the dataset
+     * @throws SQLException if the batch could not be written, in which case none of the reviews are written
+     */
+    public void registerDatasetReviews(List<Review> reviews) throws SQLException {
+        try (Connection connection = databaseHandler.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.UPSERT_DATASET_REVIEW_SQL)) {
+                claimReviews(connection, reviews);
+                for (Review review : reviews) {
+                    setDatasetReview(statement, review);
+                    statement.addBatch();
                 }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
 
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+    /**
+     * Gives dataset reviews that were stored before migration 7, and so have no sourceReviewId, the reviewId of
+     * the matching dataset review, matched by hotel, nickname, date and title as the old duplicate check did.
+     * Only the rows marked as legacy by migration 9 can be claimed, never reviews written on the website.
+     * It runs before the reviews are upserted, in the same transaction, so the first load after upgrading
+     * backfills sourceReviewId instead of inserting every review again. If no legacy row was left when the
+     * first batch was written, or once releaseUnclaimedReviews() ran, the matching is skipped.
+     *
+     * @param connection database connection of the caller
+     * @param reviews    dataset reviews about to be upserted
+     * @throws SQLException if the update fails
+     */
+    private void claimReviews(Connection connection, List<Review> reviews) throws SQLException {
+        if (!hasUnclaimedReviews(connection)) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.CLAIM_REVIEW_SQL)) {
+            for (Review review : reviews) {
+                statement.setString(1, review.getReviewId());
+                statement.setString(2, review.getHotelId());
+                statement.setString(3, review.getNickName());
+                statement.setTimestamp(4, java.sql.Timestamp.valueOf(review.getDate() + " 00:00:00"));
+                statement.setString(5, review.getTitle());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Stops matching dataset reviews to legacy rows. Called after every dataset file was loaded without errors:
+     * the legacy rows that are left did not match any dataset review, so later loads would only search them
+     * again for nothing.
+     */
+    public void releaseUnclaimedReviews() {
+        if (Boolean.FALSE.equals(unclaimedReviews)) {
+            return;
+        }
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.RELEASE_UNCLAIMED_REVIEWS_SQL)) {
+            int released = statement.executeUpdate();
+            unclaimedReviews = false;
+            if (released > 0) {
+                System.out.println(released + " reviews stored by an older version did not match a dataset review");
             }
+        } catch (SQLException e) {
+            System.out.println("Error releasing unclaimed reviews: " + e.getMessage());
         }
+    }
 
+    /**
+     * Checks once per run if any legacy review is left to be claimed
+     *
+     * @param connection database connection
+     * @return true if dataset reviews have to be matched to existing reviews before they are upserted
+     * @throws SQLException if the query fails
+     */
+    private boolean hasUnclaimedReviews(Connection connection) throws SQLException {
+        Boolean unclaimed = unclaimedReviews;
+        if (unclaimed == null) {
+            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.UNCLAIMED_REVIEWS_EXIST_SQL);
+                 ResultSet resultSet = statement.executeQuery()) {
+                unclaimed = resultSet.next() && resultSet.getBoolean(1);
+            }
+            unclaimedReviews = unclaimed;
+        }
+        return unclaimed;
+    }
+
+    /**
+     * Finds the database ids of dataset reviews
+     *
+     * @param sourceReviewIds reviewIds of the reviews in the dataset
+     * @return map from dataset reviewId to database reviewId, for the reviews that are stored
+     * @throws SQLException if the lookup fails
+     */
+    public Map<String, Integer> getReviewIds(List<String> sourceReviewIds) throws SQLException {
+        Map<String, Integer> reviewIds = new HashMap<>();
+        int size = PreparedStatements.REVIEW_LOOKUP_SIZE;
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.REVIEW_IDS_BY_SOURCE_SQL)) {
+            for (int from = 0; from < sourceReviewIds.size(); from += size) {
+                List<String> ids = sourceReviewIds.subList(from, Math.min(from + size, sourceReviewIds.size()));
+                for (int i = 0; i < size; i++) {
+                    // unused placeholders repeat the first id so every lookup uses the same statement
+                    statement.setString(i + 1, ids.get(i < ids.size() ? i : 0));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        reviewIds.put(resultSet.getString("sourceReviewId"), resultSet.getInt("reviewId"));
+                    }
+                }
+            }
+        }
+        return reviewIds;
+    }
+
+    /**
+     * Finds reviews by their database reviewId, including the like count of each review
+     *
+     * @param reviewIds ids of the reviews
+     * @return map from reviewId to review, for the reviews that exist
+     */
+    public Map<Integer, Review> getReviews(List<Integer> reviewIds) {
+        Map<Integer, Review> reviews = new HashMap<>();
+        int size = PreparedStatements.REVIEW_LOOKUP_SIZE;
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.REVIEWS_BY_ID_SQL)) {
+            for (int from = 0; from < reviewIds.size(); from += size) {
+                List<Integer> ids = reviewIds.subList(from, Math.min(from + size, reviewIds.size()));
+                for (int i = 0; i < size; i++) {
+                    statement.setInt(i + 1, ids.get(i < ids.size() ? i : 0));
+                }
+                try (ResultSet results = statement.executeQuery()) {
+                    while (results.next()) {
+                        int reviewId = results.getInt("reviewId");
+                        Review review = new Review(results.getString("hotelId"), String.valueOf(reviewId),
+                                results.getInt("rating"), results.getString("title"), results.getString("text"),
+                                results.getString("nickname"), results.getString("date"));
+                        review.setLikeCount(results.getInt("likesCount"));
+                        reviews.put(reviewId, review);
+                    }
+                }
+            }
+        } catch (SQLException | InvalidRatingException e) {
+            System.out.println("Error retrieving reviews: " + e.getMessage());
+        }
+        return reviews;
+    }
+
+    /**
+     * Adds the title and text of every stored review to the search index. The reviews are streamed
+     * from the database instead of being read into memory at once, and reviews changed in the index
+     * while they are streamed are not overwritten (see ReviewSearchIndex.addFromSnapshot).
+     *
+     * @param index search index to fill, with a snapshot started
+     * @return number of reviews indexed
+     * @throws SQLException if the reviews could not be read
+     */
+    public int indexReviews(ReviewSearchIndex index) throws SQLException {
+        int count = 0;
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.REVIEW_TEXTS_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // makes MySQL Connector/J stream the rows one at a time
+            statement.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    if (index.addFromSnapshot(results.getInt("reviewId"), results.getString("hotelId"),
+                            results.getString("title"), results.getString("text"))) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
     }
 
     /**
      * Registers a new review in the database, checking if it already exists.
      * The date format is handled as a timestamp.
+     * The review and the rating summary of its hotel are updated in one transaction.
      *
      * @param review The review object to be registered
+     * @return the reviewId of the new review, or -1 if it was not registered
      */
-    public void registerNewReview(Review review) {
-        PreparedStatement statement;
-        if (!reviewExists(review, true)) {
+    public int registerNewReview(Review review) {
+        int reviewId = -1;
+        if (!reviewExists(review)) {
             try (Connection connection = databaseHandler.getConnection()) {
-                try {
-                    statement = connection.prepareStatement(PreparedStatements.REGISTER_REVIEW_SQL);
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.REGISTER_REVIEW_SQL,
+                        Statement.RETURN_GENERATED_KEYS)) {
                     statement.setString(1, review.getHotelId());
                     statement.setInt(2, review.getRating());
                     statement.setString(3, review.getTitle());
@@ -86,8 +274,18 @@ public class ReviewsDatabaseHandler {
                     statement.setString(5, review.getNickName());
                     statement.setTimestamp(6, java.sql.Timestamp.valueOf(review.getDate()));
                     statement.executeUpdate();
-
+                    int generatedId = -1;
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            generatedId = keys.getInt(1);
+                        }
+                    }
+                    hotelDatabaseHandler.changeHotelRating(connection, review.getHotelId(), review.getRating(), 1);
+                    connection.commit();
+                    reviewId = generatedId;
+                    hotelDatabaseHandler.hotelRatingChanged(review.getHotelId());
                 } catch (Exception e) {
+                    connection.rollback();
                     System.out.println(e);
                 }
 
@@ -95,17 +293,16 @@ public class ReviewsDatabaseHandler {
                 throw new RuntimeException(e);
             }
         }
-
+        return reviewId;
     }
 
     /**
-     * Checks whether a specific review already exists in the database.
+     * Checks whether a specific review written on the website already exists in the database.
      *
-     * @param review    The review object to check
-     * @param newReview Flag indicating if this is a new review or not (affects how the date is handled)
+     * @param review The review object to check
      * @return True if the review exists, false otherwise
      */
-    private boolean reviewExists(Review review, boolean newReview) {
+    private boolean reviewExists(Review review) {
         try (Connection connection = databaseHandler.getConnection();
              PreparedStatement statement = connection.prepareStatement(PreparedStatements.REVIEW_EXISTS_SQL)) {
 
@@ -114,11 +311,7 @@ public class ReviewsDatabaseHandler {
             statement.setString(3, review.getTitle());
             statement.setString(4, review.getText());
             statement.setString(5, review.getNickName());
-            if (newReview) {
-                statement.setTimestamp(6, java.sql.Timestamp.valueOf(review.getDate()));
-            } else {
-                statement.setTimestamp(6, java.sql.Timestamp.valueOf(review.getDate() + " 00:00:00"));
-            }
+            statement.setTimestamp(6, java.sql.Timestamp.valueOf(review.getDate()));
 
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
@@ -132,20 +325,48 @@ public class ReviewsDatabaseHandler {
 
     /**
      * Edits an existing review in the database based on its reviewId.
+     * If the rating changed, the rating summary of the hotel is updated in the same transaction.
      *
      * @param review The review object containing updated data
+     * @return true if the review was updated
      */
-    public void editeReview(Review review) {
-        try (Connection connection = databaseHandler.getConnection();
-             PreparedStatement statement = connection.prepareStatement(PreparedStatements.EDITE_REVIEW_SQL)) {
-            statement.setString(1, review.getTitle());
-            statement.setString(2, review.getText());
-            statement.setTimestamp(3, java.sql.Timestamp.valueOf(review.getDate()));
-            statement.setString(4, review.getReviewId());
-            statement.executeUpdate();
+    public boolean editeReview(Review review) {
+        try (Connection connection = databaseHandler.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(PreparedStatements.REVIEW_RATING_FOR_UPDATE_SQL);
+                 PreparedStatement statement = connection.prepareStatement(PreparedStatements.EDITE_REVIEW_SQL)) {
+                select.setString(1, review.getReviewId());
+                ResultSet resultSet = select.executeQuery();
+                if (!resultSet.next()) {
+                    connection.rollback();
+                    return false;
+                }
+                String hotelId = resultSet.getString("hotelId");
+                int oldRating = resultSet.getInt("rating");
+
+                statement.setString(1, review.getTitle());
+                statement.setString(2, review.getText());
+                statement.setTimestamp(3, java.sql.Timestamp.valueOf(review.getDate()));
+                statement.setInt(4, review.getRating());
+                statement.setString(5, review.getReviewId());
+                statement.executeUpdate();
+                if (oldRating != review.getRating()) {
+                    hotelDatabaseHandler.changeHotelRating(connection, hotelId, oldRating, -1);
+                    hotelDatabaseHandler.changeHotelRating(connection, hotelId, review.getRating(), 1);
+                }
+                connection.commit();
+                if (oldRating != review.getRating()) {
+                    hotelDatabaseHandler.hotelRatingChanged(hotelId);
+                }
+                return true;
+            } catch (Exception e) {
+                connection.rollback();
+                System.out.println(e);
+            }
         } catch (Exception e) {
             System.out.println(e);
         }
+        return false;
     }
 
     /**
@@ -177,16 +398,37 @@ public class ReviewsDatabaseHandler {
 
     /**
      * Removes a specific review for the given hotel id
+     * and removes its rating from the rating summary of the hotel in the same transaction.
      *
      * @param reviewId id of the review
+     * @return true if the review was removed
      */
-    public void removeReview(String reviewId) {
-        try (Connection connection = databaseHandler.getConnection();
-             PreparedStatement statement = connection.prepareStatement(PreparedStatements.REMOVE_REVIEW_SQL)) {
-            statement.setString(1, reviewId);
-            statement.executeUpdate();
+    public boolean removeReview(String reviewId) {
+        try (Connection connection = databaseHandler.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(PreparedStatements.REVIEW_RATING_FOR_UPDATE_SQL);
+                 PreparedStatement statement = connection.prepareStatement(PreparedStatements.REMOVE_REVIEW_SQL)) {
+                select.setString(1, reviewId);
+                ResultSet resultSet = select.executeQuery();
+                if (!resultSet.next()) {
+                    connection.commit();
+                    return false;
+                }
+                String hotelId = resultSet.getString("hotelId");
+                int rating = resultSet.getInt("rating");
+                statement.setString(1, reviewId);
+                statement.executeUpdate();
+                hotelDatabaseHandler.changeHotelRating(connection, hotelId, rating, -1);
+                connection.commit();
+                hotelDatabaseHandler.hotelRatingChanged(hotelId);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             System.out.println("Error removing review: " + e.getMessage());
         }
+        return false;
     }
 }
@@ -0,0 +1,84 @@
+package server;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates the database schema once at startup.
+ * The tables that existed before startup are read from the database metadata a single time,
+ * the missing tables are created, pending migrations are applied by the SchemaMigrator,
+ * and the resulting schema is recorded in the DatabaseHandler so request handling never
+ * has to query the metadata again.
+ */
+public class SchemaBootstrap {
+    private final DatabaseHandler databaseHandler = DatabaseHandler.getInstance();
+    private final Map<String, String> tables = new LinkedHashMap<>();
+    private final Set<String> existingTables = new HashSet<>();
+
+    public SchemaBootstrap() {
+        tables.put("users", PreparedStatements.CREATE_USER_TABLE);
+        tables.put("hotels", PreparedStatements.CREATE_HOTELS_TABLE);
+        tables.put("reviews", PreparedStatements.CREATE_REVIEWS_TABLE);
+        tables.put("reviewsLikes", PreparedStatements.CREATE_REVIEWS_LIKES_TABLE);
+        tables.put("expediaLinks", PreparedStatements.CREATE_TABLE_EXPEDIA_LINKS);
+    }
+
+    /**
+     * Reads the existing tables, creates the missing ones and records the schema.
+     *
+     * @throws IllegalStateException if the schema could not be created
+     */
+    public void bootstrap() {
+        try (Connection connection = databaseHandler.getConnection()) {
+            existingTables.addAll(readTables(connection));
+
+            try (Statement statement = connection.createStatement()) {
+                for (Map.Entry<String, String> table : tables.entrySet()) {
+                    if (!existedBeforeStartup(table.getKey())) {
+                        statement.executeUpdate(table.getValue());
+                    }
+                }
+            }
+            new SchemaMigrator().migrate(connection);
+
+            databaseHandler.setKnownTables(readTables(connection));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the database schema", e);
+        }
+    }
+
+    /**
+     * Reads the names of the tables in the database from its metadata.
+     *
+     * @param connection database connection
+     * @return table names
+     * @throws SQLException if the metadata could not be read
+     */
+    private Set<String> readTables(Connection connection) throws SQLException {
+        Set<String> tableNames = new HashSet<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getTables(null, databaseHandler.getDatabaseName(), "%", new String[]{"TABLE"})) {
+            while (resultSet.next()) {
+                tableNames.add(resultSet.getString("TABLE_NAME"));
+            }
+        }
+        return tableNames;
+    }
+
+    /**
+     * Checks if a table already existed before this bootstrap ran.
+     *
+     * @param tableName name of the table
+     * @return true if the table existed, false if it was created at this startup
+     */
+    public boolean existedBeforeStartup(String tableName) {
+        return existingTables.contains(tableName);
+    }
+}
@@ -0,0 +1,195 @@
+package server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the schema migrations that have not been applied to the database yet, in order of their version.
+ * Applied migrations are recorded in the schemaMigrations table together with their checksum,
+ * and startup fails if an applied migration was changed afterwards.
+ * New migrations are added at the end of the list with the next version number;
+ * migrations that have been released are never edited.
+ * MySQL commits every DDL statement on its own, so a migration that stopped halfway is partly applied but
+ * not recorded. Its statements are run again at the next startup, and statements whose change is already in
+ * the database are skipped: an index or column that exists, or an INSERT into a table that already has rows.
+ * The other statements used by migrations (CREATE TABLE if not exists, MODIFY, deleting duplicates, setting
+ * a column) can be run twice.
+ */
+public class SchemaMigrator {
+    private static final Pattern CREATE_INDEX =
+            Pattern.compile("^CREATE (?:UNIQUE )?INDEX (\\w+) ON (\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADD_COLUMN =
+            Pattern.compile("^ALTER TABLE (\\w+) ADD COLUMN (\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT_INTO =
+            Pattern.compile("^INSERT INTO (\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Index reviews by hotel and date",
+                    "CREATE INDEX idx_reviews_hotel_date ON reviews (hotelId, date)"),
+            new Migration(2, "Allow one like per user and review",
+                    "DELETE l1 FROM reviewsLikes l1 JOIN reviewsLikes l2" +
+                            " ON l1.reviewId = l2.reviewId AND l1.username = l2.username AND l1.likeId > l2.likeId",
+                    "CREATE UNIQUE INDEX idx_likes_review_user ON reviewsLikes (reviewId, username)"),
+            new Migration(3, "Index expedia links by user",
+                    "CREATE INDEX idx_links_username ON expediaLinks (username)"),
+            new Migration(4, "Index hotels by name",
+                    "CREATE INDEX idx_hotels_name ON hotels (name)"),
+            new Migration(5, "Store hotel ids as VARCHAR like reviews.hotelId",
+                    "ALTER TABLE hotels MODIFY hotelId VARCHAR(10) NOT NULL"),
+            new Migration(6, "Keep a rating summary per hotel",
+                    "CREATE TABLE if not exists hotelRatings (" +
+                            " hotelId VARCHAR(10) PRIMARY KEY," +
+                            " ratingSum BIGINT NOT NULL DEFAULT 0," +
+                            " ratingCount INTEGER NOT NULL DEFAULT 0," +
+                            " rating1 INTEGER NOT NULL DEFAULT 0," +
+                            " rating2 INTEGER NOT NULL DEFAULT 0," +
+                            " rating3 INTEGER NOT NULL DEFAULT 0," +
+                            " rating4 INTEGER NOT NULL DEFAULT 0," +
+                            " rating5 INTEGER NOT NULL DEFAULT 0)",
+                    "INSERT INTO hotelRatings (hotelId, ratingSum, ratingCount, rating1, rating2, rating3, rating4, rating5)" +
+                            " SELECT hotelId, SUM(rating), COUNT(*), SUM(rating = 1), SUM(rating = 2)," +
+                            " SUM(rating = 3), SUM(rating = 4), SUM(rating = 5)" +
+                            " FROM reviews GROUP BY hotelId"),
+            new Migration(7, "Identify dataset reviews by their reviewId",
+                    "ALTER TABLE reviews ADD COLUMN sourceReviewId VARCHAR(64) NULL",
+                    "CREATE UNIQUE INDEX idx_reviews_source ON reviews (sourceReviewId)"),
+            new Migration(8, "Keep a manifest of ingested dataset files",
+                    "CREATE TABLE if not exists ingestedFiles (" +
+                            " path VARCHAR(512) PRIMARY KEY," +
+                            " size BIGINT NOT NULL," +
+                            " modified BIGINT NOT NULL," +
+                            " hash CHAR(64) NOT NULL," +
+                            " ingestedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)"),
+            // website reviews are stored with the time they were written, dataset reviews at midnight
+            new Migration(9, "Mark dataset reviews stored before their reviewId was kept",
+                    "ALTER TABLE reviews ADD COLUMN legacy BOOLEAN NOT NULL DEFAULT FALSE",
+                    "UPDATE reviews SET legacy = TRUE WHERE sourceReviewId IS NULL AND TIME(date) = '00:00:00'"),
+            new Migration(10, "Mark reviews edited on the website",
+                    "ALTER TABLE reviews ADD COLUMN edited BOOLEAN NOT NULL DEFAULT FALSE")
+    );
+
+    /**
+     * Applies all pending migrations on the given connection.
+     *
+     * @param connection database connection
+     * @throws SQLException          if a migration fails
+     * @throws IllegalStateException if an applied migration does not match its checksum
+     */
+    public void migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(PreparedStatements.CREATE_SCHEMA_MIGRATIONS_TABLE);
+        }
+
+        Map<Integer, String> applied = getAppliedMigrations(connection);
+        for (Migration migration : MIGRATIONS) {
+            String checksum = applied.get(migration.getVersion());
+            if (checksum == null) {
+                apply(connection, migration);
+            } else if (!checksum.equals(migration.getChecksum())) {
+                throw new IllegalStateException("Migration " + migration + " was changed after it was applied");
+            }
+        }
+    }
+
+    /**
+     * Reads the versions and checksums of the applied migrations.
+     *
+     * @param connection database connection
+     * @return map from version to checksum
+     * @throws SQLException if the query fails
+     */
+    private Map<Integer, String> getAppliedMigrations(Connection connection) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.APPLIED_MIGRATIONS_SQL);
+             ResultSet results = statement.executeQuery()) {
+            while (results.next()) {
+                applied.put(results.getInt("version"), results.getString("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Checks if the change made by a statement is already in the database, because the migration it belongs
+     * to stopped after running it
+     *
+     * @param connection database connection
+     * @param sql        statement of a migration
+     * @return true if the statement creates an index or column that exists, or inserts into a table that has rows
+     * @throws SQLException if the check fails
+     */
+    private boolean isAlreadyApplied(Connection connection, String sql) throws SQLException {
+        Matcher index = CREATE_INDEX.matcher(sql);
+        if (index.find()) {
+            return exists(connection, PreparedStatements.INDEX_EXISTS_SQL, index.group(2), index.group(1));
+        }
+        Matcher column = ADD_COLUMN.matcher(sql);
+        if (column.find()) {
+            return exists(connection, PreparedStatements.COLUMN_EXISTS_SQL, column.group(1), column.group(2));
+        }
+        Matcher insert = INSERT_INTO.matcher(sql);
+        if (insert.find()) {
+            // the table name comes from a migration, not from user input
+            try (Statement statement = connection.createStatement();
+                 ResultSet results = statement.executeQuery("SELECT 1 FROM " + insert.group(1) + " LIMIT 1")) {
+                return results.next();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs an EXISTS query for a table and the name of an index or column
+     *
+     * @param connection database connection
+     * @param sql        the query
+     * @param table      name of the table
+     * @param name       name of the index or column
+     * @return result of the query
+     * @throws SQLException if the query fails
+     */
+    private boolean exists(Connection connection, String sql, String table, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, name);
+            try (ResultSet results = statement.executeQuery()) {
+                return results.next() && results.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Runs the statements of a migration and records it as applied.
+     *
+     * @param connection database connection
+     * @param migration  migration to apply
+     * @throws SQLException if a statement fails
+     */
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                if (isAlreadyApplied(connection, sql)) {
+                    System.out.println("Skipped a statement of migration " + migration + " that was already applied");
+                } else {
+                    statement.executeUpdate(sql);
+                }
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.RECORD_MIGRATION_SQL)) {
+            statement.setInt(1, migration.getVersion());
+            statement.setString(2, migration.getDescription());
+            statement.setString(3, migration.getChecksum());
+            statement.executeUpdate();
+        }
+        System.out.println("Applied migration " + migration + " in " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
@@ -0,0 +1,235 @@
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the prepared statements of one pooled connection, keyed by their SQL text
+ * (in practice the constants of PreparedStatements).
+ * A statement is prepared on the server the first time its SQL is used on the connection,
+ * and later calls get the same statement back. Closing a cached statement only clears its
+ * parameters, batch and result sets and resets its settings so the next caller can reuse it.
+ * A connection is only used by one caller at a time, so this class is not synchronized.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final ConnectionPool pool;
+    private final int maxSize;
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection connection, ConnectionPool pool, int maxSize) {
+        this.connection = connection;
+        this.pool = pool;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Checks whether statements should be cached at all.
+     *
+     * @return false if the cache size is set to 0
+     */
+    boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, preparing it only if it is not cached yet.
+     *
+     * @param sql SQL text of the statement
+     * @return prepared statement that goes back to the cache when it is closed, or null if the
+     * cached statement is still in use by the same caller and an uncached one has to be prepared
+     * @throws SQLException if the statement could not be prepared
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            pool.recordStatementCacheHit();
+        } else if (cached != null) {
+            pool.recordStatementCacheMiss();
+            return null;
+        } else {
+            pool.recordStatementCacheMiss();
+            cached = new CachedStatement(sql, connection.prepareStatement(sql));
+            statements.put(sql, cached);
+            evictLeastRecentlyUsed();
+        }
+        cached.inUse = true;
+        return cached.checkout();
+    }
+
+    /**
+     * Closes the least recently used statements that are not in use while the cache is over its size.
+     */
+    private void evictLeastRecentlyUsed() {
+        Iterator<Map.Entry<String, CachedStatement>> iterator = statements.entrySet().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement cached = iterator.next().getValue();
+            if (!cached.inUse) {
+                iterator.remove();
+                cached.closePhysical();
+            }
+        }
+    }
+
+    /**
+     * Returns every statement a caller did not close to the cache.
+     * Called when the connection goes back to the pool.
+     */
+    void releaseAll() {
+        // release() drops statements that cannot be reused, so iterate over a copy
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            if (cached.inUse) {
+                cached.release();
+            }
+        }
+    }
+
+    /**
+     * Closes every cached statement. Called when the physical connection is closed.
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    /**
+     * A prepared statement kept open on the server together with its checkout state and the settings
+     * it had when it was prepared.
+     */
+    private class CachedStatement {
+        private final String sql;
+        private final PreparedStatement statement;
+        private final List<ResultSet> resultSets = new ArrayList<>();
+        private final int fetchSize;
+        private final int fetchDirection;
+        private final int maxRows;
+        private final int maxFieldSize;
+        private final int queryTimeout;
+        private boolean inUse = false;
+        private boolean reusable = true;
+        private Handle handle;
+
+        CachedStatement(String sql, PreparedStatement statement) throws SQLException {
+            this.sql = sql;
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.fetchDirection = statement.getFetchDirection();
+            this.maxRows = statement.getMaxRows();
+            this.maxFieldSize = statement.getMaxFieldSize();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+
+        /**
+         * Creates the statement handle given to the caller.
+         *
+         * @return proxy statement that returns to the cache on close
+         */
+        PreparedStatement checkout() {
+            handle = new Handle();
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handle);
+        }
+
+        /**
+         * Clears the parameters, batch, warnings and open result sets and puts back the settings the statement
+         * was prepared with, so the next caller gets the statement as if it was just prepared.
+         * A statement whose settings cannot be read back, or that could not be reset, is closed and dropped
+         * from the cache instead.
+         */
+        void release() {
+            handle.closed = true;
+            inUse = false;
+            try {
+                for (ResultSet resultSet : resultSets) {
+                    resultSet.close();
+                }
+                if (reusable && !statement.isClosed()) {
+                    statement.clearParameters();
+                    statement.clearBatch();
+                    statement.clearWarnings();
+                    statement.setFetchSize(fetchSize);
+                    statement.setFetchDirection(fetchDirection);
+                    statement.setMaxRows(maxRows);
+                    statement.setMaxFieldSize(maxFieldSize);
+                    statement.setQueryTimeout(queryTimeout);
+                } else {
+                    reusable = false;
+                }
+            } catch (SQLException e) {
+                System.out.println(e);
+                reusable = false;
+            }
+            resultSets.clear();
+            if (!reusable) {
+                statements.remove(sql, this);
+                closePhysical();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        }
+
+        /**
+         * Forwards calls to the cached statement until the handle is closed.
+         */
+        private class Handle implements InvocationHandler {
+            private boolean closed = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            release();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "setEscapeProcessing":
+                    case "setCursorName":
+                    case "setPoolable":
+                    case "closeOnCompletion":
+                    case "setLargeMaxRows":
+                        // these settings cannot be read back to be reset, so the statement is not reused
+                        reusable = false;
+                        // fall through
+                    default:
+                        if (closed) {
+                            throw new SQLException("Statement has already been closed");
+                        }
+                }
+                try {
+                    Object result = method.invoke(statement, args);
+                    if (result instanceof ResultSet) {
+                        resultSets.add((ResultSet) result);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
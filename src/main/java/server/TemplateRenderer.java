@@ -0,0 +1,155 @@
+package server;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Renders the Velocity templates of the static folder and keeps the time spent rendering each of them.
+ * The templates are parsed once when the server starts and kept in Velocity's resource cache. They are only
+ * checked for changes in dev mode, so edits to a template show up without a restart while developing.
+ * Fragments that are the same for every user can be rendered through a FragmentCache.
+ */
+public class TemplateRenderer {
+    private static final String TEMPLATE_FOLDER = "static";
+    private static final int DEV_MODIFICATION_CHECK_SECONDS = 2;
+    private static final int MAX_FRAGMENTS = 10_000;
+
+    private final VelocityEngine engine;
+    private final boolean devMode;
+    private final FragmentCache fragmentCache = new FragmentCache(MAX_FRAGMENTS);
+    private final Map<String, TemplateStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the Velocity engine
+     *
+     * @param devMode true to check the templates for changes while the server runs
+     */
+    public TemplateRenderer(boolean devMode) {
+        this.devMode = devMode;
+        engine = new VelocityEngine();
+        engine.setProperty("file.resource.loader.cache", "true");
+        engine.setProperty("file.resource.loader.modificationCheckInterval",
+                String.valueOf(devMode ? DEV_MODIFICATION_CHECK_SECONDS : 0));
+        engine.init();
+    }
+
+    /**
+     * Parses every template of the static folder, so requests never parse a template and a template
+     * with a syntax error stops the server from starting.
+     *
+     * @return the number of templates parsed
+     * @throws IOException if the static folder cannot be read
+     */
+    public int preloadTemplates() throws IOException {
+        long start = System.nanoTime();
+        List<String> names = new ArrayList<>();
+        Path folder = Paths.get(TEMPLATE_FOLDER);
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.filter(file -> file.toString().endsWith(".html"))
+                    .forEach(file -> names.add(TEMPLATE_FOLDER + "/" + folder.relativize(file).toString().replace('\\', '/')));
+        }
+        for (String name : names) {
+            engine.getTemplate(name);
+        }
+        System.out.printf("Parsed %d templates in %.1fms%s%n", names.size(), (System.nanoTime() - start) / 1_000_000.0,
+                devMode ? ", checking them for changes every " + DEV_MODIFICATION_CHECK_SECONDS + "s" : "");
+        return names.size();
+    }
+
+    /**
+     * Renders a template and records how long it took
+     *
+     * @param name    path of the template, like "static/homePage.html"
+     * @param context values used by the template
+     * @param out     writer the page is written to
+     */
+    public void render(String name, VelocityContext context, Writer out) {
+        Template template = engine.getTemplate(name);
+        long start = System.nanoTime();
+        template.merge(context, out);
+        stats.computeIfAbsent(name, key -> new TemplateStats()).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Renders a fragment that is the same for every user, or returns it from the fragment cache if it was
+     * already rendered for this version of the hotel's data
+     *
+     * @param name    path of the fragment template
+     * @param hotelId id of the hotel the fragment shows
+     * @param version version of the hotel's data; it must be read before the data that fill uses
+     * @param fill    puts the values used by the fragment into its context; only called when rendering
+     * @return the rendered fragment
+     */
+    public String renderFragment(String name, String hotelId, long version, Consumer<VelocityContext> fill) {
+        return fragmentCache.get(name, hotelId, version, () -> {
+            VelocityContext context = new VelocityContext();
+            fill.accept(context);
+            StringWriter out = new StringWriter();
+            render(name, context, out);
+            return out.toString();
+        });
+    }
+
+    /**
+     * Returns the render time metrics of every template and the fragment cache statistics
+     *
+     * @return metrics as a map that can be sent as JSON
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> templates = new TreeMap<>();
+        for (Map.Entry<String, TemplateStats> entry : stats.entrySet()) {
+            templates.put(entry.getKey(), entry.getValue().toMetrics());
+        }
+        Map<String, Object> fragments = new LinkedHashMap<>();
+        fragments.put("hits", fragmentCache.getHits());
+        fragments.put("misses", fragmentCache.getMisses());
+        fragments.put("size", fragmentCache.size());
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("devMode", devMode);
+        metrics.put("templates", templates);
+        metrics.put("fragmentCache", fragments);
+        return metrics;
+    }
+
+    /**
+     * Number of renders and render times of one template
+     */
+    private static class TemplateStats {
+        private final AtomicLong renders = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            renders.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMetrics() {
+            long count = renders.get();
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("renders", count);
+            metrics.put("averageMillis", count == 0 ? 0.0 : totalNanos.get() / 1_000_000.0 / count);
+            metrics.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            return metrics;
+        }
+    }
+}
@@ -1,29 +1,49 @@
 package server;
 
 import hotelapp.HotelLoader;
+import hotelapp.IngestManifest;
+import hotelapp.IngestProgress;
 import hotelapp.ReviewData;
 import hotelapp.ReviewDirectoryTraverser;
-import hotelapp.ThreadSafeReviewData;
+import hotelapp.ReviewDirectoryWatcher;
 import parser.ArgumentParser;
 import parser.ReviewParser;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
 public class TravelServerDriver {
     public static final int PORT = 8080;
     private final static HotelLoader hotelLoader = new HotelLoader();
-    private final static ReviewData threadSafeReviewData = new ThreadSafeReviewData();
+    private final static ReviewData threadSafeReviewData = new ReviewData();
     private final ArgumentParser argumentParser = new ArgumentParser();
-    private final DatabaseHandler databaseHandler=DatabaseHandler.getInstance();
-    private final UserDatabaseHandler userDatabaseHandler=UserDatabaseHandler.getInstance();
-    private final ReviewsDatabaseHandler rwDbHandler= ReviewsDatabaseHandler.getInstance();
-    private final HotelDatabaseHandler hotelDatabaseHandler= HotelDatabaseHandler.getInstance();
+    private final static IngestProgress ingestProgress = new IngestProgress();
+    private int threadNum;
+    private int writerNum;
+    private int queueCapacity;
+    private boolean devMode;
 
     /**
      * Parse given arguments that contain paths to the hotel file and the reviews folder,
-     * and load hotel and review data into the corresponding data structures.
+     * create the schema and load the hotels. The reviews are loaded afterwards by loadReviews(),
+     * which can run in the background while the server already handles requests.
      *
-     * @param args Arguments can be given in the following format where -reviews, -threads, -output are optional:
-     *             -hotels pathToHotelFile -reviews pathToReviewsFolder -threads n
-     *             or in a different order.
+     * @param args Arguments can be given in the following format where -reviews, -threads, -writers, -queue, -reload,
+     *             -watch, -dev, -verifyRatings are optional:
+     *             -hotels pathToHotelFile -reviews pathToReviewsFolder -threads n -writers n -queue n -reload true
+     *             -watch true -dev true -verifyRatings true
+     *             or in a different order. -threads sets the number of threads parsing review files, -writers the
+     *             number of threads writing them to the database and -queue how many chunks of parsed reviews can wait
+     *             for a writer. Review files are recorded in a manifest when they are loaded, and only new or changed
+     *             files are loaded at later startups. With -reload true every file is loaded again; reviews that are
+     *             already stored are matched by their dataset reviewId, or by hotel, nickname, date and title if they
+     *             were stored by an older version, and updated, except for the title, text, rating and date of reviews
+     *             edited on the website. With -watch true review files added to or changed in the reviews folder while
+     *             the server runs are loaded in the background. With -dev true the page templates are checked for
+     *             changes while the server runs; otherwise they are parsed once at startup. With -verifyRatings true
+     *             the rating summaries of all hotels are checked against the reviews table at startup and rebuilt if
+     *             any does not match.
      */
     public void loadData(String[] args) {
         argumentParser.parseArgs(args);
@@ -31,39 +51,159 @@ public class TravelServerDriver {
         if (hotelPath == null || hotelPath.isEmpty()) {
             throw new IllegalArgumentException("The essential parameter \"-hotels\" is missing");
         }
-        if (!databaseHandler.tableExists("hotels")) {
-            hotelDatabaseHandler.createHotelsTable();
+        SchemaBootstrap schemaBootstrap = new SchemaBootstrap();
+        schemaBootstrap.bootstrap();
+        HotelDatabaseHandler.getInstance().loadCatalog();
+        if (!schemaBootstrap.existedBeforeStartup("hotels")) {
             hotelLoader.updateHotelMap(hotelPath);
-        }else if(!databaseHandler.tableExists("expediaLinks")){
-            databaseHandler.createExpediaLinksTable();
         }
-        String reviewPath = argumentParser.getArgValue("-reviews");
-        String threads = argumentParser.getArgValue("-threads");
-        int threadNum;
-        if (threads == null) {
-            threadNum = 3;
-        } else {
-            threadNum = Integer.parseInt(threads);
+        threadNum = getIntArg("-threads", 3);
+        writerNum = getIntArg("-writers", 2);
+        queueCapacity = getIntArg("-queue", 64);
+        devMode = Boolean.parseBoolean(argumentParser.getArgValue("-dev"));
+    }
+
+    /**
+     * Loads the new and changed review files from the reviews folder and updates the rating summaries of
+     * the hotels they have reviews for, reporting the progress to ingestProgress. The rating summaries of
+     * all hotels are only checked against the reviews table, and rebuilt if any does not match, with
+     * -verifyRatings true.
+     */
+    public void loadReviews() {
+        ingestProgress.start();
+        boolean succeeded = false;
+        try {
+            String reviewPath = argumentParser.getArgValue("-reviews");
+            ReviewParser reviewParser;
+            ReviewDirectoryTraverser reviewDirectoryTraverser;
+            boolean reload = Boolean.parseBoolean(argumentParser.getArgValue("-reload"));
+            Set<String> loadedHotelIds = Collections.emptySet();
+            if (reviewPath != null) {
+                reviewParser = new ReviewParser();
+                reviewDirectoryTraverser = new ReviewDirectoryTraverser(threadNum, writerNum, queueCapacity,
+                        reviewParser, ingestProgress);
+                IngestManifest manifest = new IngestManifest(reload);
+                ReviewDirectoryWatcher watcher = null;
+                if (Boolean.parseBoolean(argumentParser.getArgValue("-watch"))) {
+                    // registered first, so files added while the startup load runs are loaded afterwards
+                    watcher = registerWatcher(reviewPath, reviewParser, manifest);
+                }
+                long loadedFiles;
+                try {
+                    loadedFiles = reviewDirectoryTraverser.traverseDirectory(reviewPath, threadSafeReviewData,
+                            manifest);
+                } catch (RuntimeException e) {
+                    if (watcher != null) {
+                        watcher.stop();
+                    }
+                    throw e;
+                }
+                if (loadedFiles > 0) {
+                    loadedHotelIds = reviewDirectoryTraverser.getLoadedHotelIds();
+                }
+                if (watcher != null) {
+                    watcher.start();
+                    Runtime.getRuntime().addShutdownHook(new Thread(watcher::stop, "review-watcher-stop"));
+                }
+            }
+            HotelDatabaseHandler.getInstance().rebuildHotelRatings(loadedHotelIds);
+            if (Boolean.parseBoolean(argumentParser.getArgValue("-verifyRatings"))) {
+                HotelDatabaseHandler.getInstance().verifyHotelRatings();
+            }
+            succeeded = true;
+        } finally {
+            ingestProgress.finish(succeeded);
+        }
+    }
+
+    /**
+     * Builds the review search index from the reviews already stored on a background thread. It does not
+     * hold up loadReviews(), so a restart is ready as soon as the review files are checked; searches return
+     * the reviews indexed so far until it is done.
+     *
+     * @return the thread building the index
+     */
+    public Thread startWarmingSearchIndex() {
+        Thread warmer = new Thread(() -> {
+            try {
+                threadSafeReviewData.warmSearchIndex();
+            } catch (RuntimeException e) {
+                System.out.println("Building the review search index failed: " + e);
+            }
+        }, "search-index-warmer");
+        warmer.start();
+        return warmer;
+    }
+
+    /**
+     * Runs loadReviews() on a background thread
+     *
+     * @return the thread loading the reviews
+     */
+    public Thread startLoadingReviews() {
+        Thread loader = new Thread(() -> {
+            try {
+                loadReviews();
+            } catch (RuntimeException e) {
+                System.out.println("Loading reviews failed: " + e);
+            }
+        }, "review-loader");
+        loader.start();
+        return loader;
+    }
+
+    /**
+     * Registers a watcher for review files that are added to or changed in the reviews directory. It is started
+     * once the startup load is done.
+     *
+     * @param reviewPath   path to the reviews directory
+     * @param reviewParser parser for review files
+     * @param manifest     manifest of the files loaded at startup
+     * @return the registered watcher, or null if the directory could not be watched
+     */
+    private ReviewDirectoryWatcher registerWatcher(String reviewPath, ReviewParser reviewParser, IngestManifest manifest) {
+        ReviewDirectoryWatcher watcher = new ReviewDirectoryWatcher(reviewPath, threadSafeReviewData, reviewParser,
+                manifest);
+        try {
+            watcher.register();
+            return watcher;
+        } catch (IOException e) {
+            System.out.println("Could not watch " + reviewPath + ": " + e.getMessage());
+            watcher.stop();
+            return null;
         }
-        ReviewParser reviewParser;
-        ReviewDirectoryTraverser reviewDirectoryTraverser;
-        if (reviewPath != null && !databaseHandler.tableExists("reviews") || !databaseHandler.tableExists("users")) {
-            rwDbHandler.createReviewsTable();
-            userDatabaseHandler.createUserTable();
-            reviewParser = new ReviewParser();
-            reviewDirectoryTraverser = new ReviewDirectoryTraverser(threadNum, reviewParser);
-            reviewDirectoryTraverser.traverseDirectory(reviewPath, (ThreadSafeReviewData) threadSafeReviewData);
+    }
 
+    /**
+     * Reads a positive integer argument.
+     *
+     * @param name         name of the argument
+     * @param defaultValue value used when the argument is not given
+     * @return value of the argument
+     */
+    private int getIntArg(String name, int defaultValue) {
+        String value = argumentParser.getArgValue(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int number = Integer.parseInt(value);
+        if (number < 1) {
+            throw new IllegalArgumentException("The parameter \"" + name + "\" must be at least 1");
         }
+        return number;
     }
 
     public static void main(String[] args) {
         TravelServerDriver server = new TravelServerDriver();
         try {
             server.loadData(args);
-            JettyServer jettyServer = new JettyServer(PORT, threadSafeReviewData, hotelLoader);
+            JettyServer jettyServer = new JettyServer(PORT, threadSafeReviewData, hotelLoader, ingestProgress,
+                    server.devMode);
             jettyServer.addServletMapping();
             jettyServer.start();
+            server.startWarmingSearchIndex();
+            server.startLoadingReviews();
+            jettyServer.join();
 
         } catch (Exception ex) {
             System.out.println(ex);
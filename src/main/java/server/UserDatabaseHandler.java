@@ -2,9 +2,15 @@ package server;
 
 import java.math.BigInteger;
 import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.sql.*;
 import java.text.SimpleDateFormat;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * This class handles all user-related database operations such as
@@ -15,7 +21,8 @@ import java.util.Random;
 public class UserDatabaseHandler {
     private final DatabaseHandler databaseHandler = DatabaseHandler.getInstance();
     private static final UserDatabaseHandler userDatabaseHandler = new UserDatabaseHandler();
-    private final Random random = new Random();
+    // SecureRandom is thread safe, so the salts of users created in parallel come from this one generator
+    private final SecureRandom random = new SecureRandom();
 
     /**
      * Returns the singleton instance of the UserDatabaseHandler.
@@ -27,24 +34,6 @@ public class UserDatabaseHandler {
         return userDatabaseHandler;
     }
 
-    /**
-     * Creates the user table in the database if it doesn't already exist.
-     * The table stores information related to the users such as username,
-     * hashed password, salt, and the last login time.
-     */
-    public void createUserTable() {
-        if (!databaseHandler.tableExists("users")) {
-            Statement statement;
-            try (Connection connection = databaseHandler.getConnection()) {
-                statement = connection.createStatement();
-                statement.executeUpdate(PreparedStatements.CREATE_USER_TABLE);
-            } catch (SQLException ex) {
-                System.out.println(ex);
-            }
-        }
-    }
-
-
     /**
      * Registers a new user, placing the username, password hash, and
      * salt into the database.
@@ -60,16 +49,16 @@ public class UserDatabaseHandler {
                 String userSalt = encodeHex(saltBytes, 32);
                 String passHash = getHash(newPass, userSalt);
 
-                PreparedStatement statement;
                 try (Connection connection = databaseHandler.getConnection()) {
-                    try {
-                        statement = connection.prepareStatement(PreparedStatements.REGISTER_USER_SQL);
+                    try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.REGISTER_USER_SQL)) {
                         statement.setString(1, newUser);
                         statement.setString(2, passHash);
                         statement.setString(3, userSalt);
                         statement.setString(4, null);
                         statement.executeUpdate();
-                        statement.close();
+                    } catch (SQLIntegrityConstraintViolationException e) {
+                        // another thread registered the same username after the check above
+                        return false;
                     } catch (SQLException e) {
                         System.out.println(e);
                     }
@@ -86,6 +75,75 @@ public class UserDatabaseHandler {
     }
 
 
+    /**
+     * Registers the users created from the dataset in bulk. Existing users are found with one query per
+     * EXISTING_USERS_LOOKUP_SIZE names, the passwords of the new users are hashed in parallel, and the
+     * new users are inserted in one batch that skips names registered in the meantime.
+     * Like registerUser, users whose password does not meet the requirements are not created.
+     * The driver does not report how many rows a rewritten batch inserted, so the users skipped by
+     * the INSERT IGNORE cannot be told apart and the number submitted is returned instead.
+     *
+     * @param passwords map from username to password
+     * @return number of new users submitted for insertion
+     * @throws SQLException if the users could not be registered
+     */
+    public int registerDatasetUsers(Map<String, String> passwords) throws SQLException {
+        try (Connection connection = databaseHandler.getConnection()) {
+            Set<String> newUsers = new HashSet<>(passwords.keySet());
+            newUsers.removeAll(getExistingUsers(connection, new ArrayList<>(passwords.keySet())));
+            newUsers.removeIf(username -> !isPassValid(passwords.get(username)));
+            if (newUsers.isEmpty()) {
+                return 0;
+            }
+            List<String[]> rows = newUsers.parallelStream().map(username -> {
+                byte[] saltBytes = new byte[16];
+                random.nextBytes(saltBytes);
+                String userSalt = encodeHex(saltBytes, 32);
+                return new String[]{username, getHash(passwords.get(username), userSalt), userSalt};
+            }).collect(Collectors.toList());
+
+            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.REGISTER_USER_IGNORE_SQL)) {
+                for (String[] row : rows) {
+                    statement.setString(1, row[0]);
+                    statement.setString(2, row[1]);
+                    statement.setString(3, row[2]);
+                    statement.setString(4, null);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                return rows.size();
+            }
+        }
+    }
+
+    /**
+     * Finds which of the given usernames are already registered.
+     *
+     * @param connection database connection
+     * @param usernames  usernames to look up
+     * @return the usernames that exist
+     * @throws SQLException if the lookup fails
+     */
+    private Set<String> getExistingUsers(Connection connection, List<String> usernames) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        int size = PreparedStatements.EXISTING_USERS_LOOKUP_SIZE;
+        try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.EXISTING_USERS_SQL)) {
+            for (int from = 0; from < usernames.size(); from += size) {
+                List<String> names = usernames.subList(from, Math.min(from + size, usernames.size()));
+                for (int i = 0; i < size; i++) {
+                    // unused placeholders repeat the first name so every lookup uses the same statement
+                    statement.setString(i + 1, names.get(i < names.size() ? i : 0));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        existing.add(resultSet.getString("username"));
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
     /**
      * Connects to the database and checks if a username with the given name exists
      *
@@ -93,10 +151,8 @@ public class UserDatabaseHandler {
      * @return true if it exists and false if it doesn't exist
      */
     public boolean userExists(String newUsername) {
-        PreparedStatement statement;
         try (Connection connection = databaseHandler.getConnection()) {
-            try {
-                statement = connection.prepareStatement(PreparedStatements.USER_EXISTS_SQL);
+            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.USER_EXISTS_SQL)) {
                 statement.setString(1, newUsername);
                 ResultSet resultSet = statement.executeQuery();
                 if (resultSet.next()) {
@@ -138,9 +194,8 @@ public class UserDatabaseHandler {
      * @return true if password and username matched and exists and false otherwise
      */
     public boolean authenticateUser(String username, String password) {
-        PreparedStatement statement;
-        try (Connection connection = databaseHandler.getConnection()) {
-            statement = connection.prepareStatement(PreparedStatements.AUTH_SQL);
+        try (Connection connection = databaseHandler.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.AUTH_SQL)) {
             String usersalt = getSalt(connection, username);
             String passhash = getHash(password, usersalt);
 
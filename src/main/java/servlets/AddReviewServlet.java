@@ -6,9 +6,8 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
+import server.TemplateRenderer;
 
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
@@ -39,14 +38,13 @@ public class AddReviewServlet extends HttpServlet {
             response.setStatus(HttpServletResponse.SC_OK);
             PrintWriter out = response.getWriter();
 
-            VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+            TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
             VelocityContext context = new VelocityContext();
             HttpSession session = request.getSession();
             String username = (String) session.getAttribute("currentUser");
-            Template template = ve.getTemplate("static/addReview.html");
             context.put("username", username);
 
-            template.merge(context, out);
+            templateRenderer.render("static/addReview.html", context, out);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
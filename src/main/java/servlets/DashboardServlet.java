@@ -4,10 +4,9 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import server.DatabaseHandler;
+import server.TemplateRenderer;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -36,12 +35,11 @@ public class DashboardServlet extends HttpServlet {
 
         List<String> links = databaseHandler.getAllVisitedLinks(username);
         PrintWriter out = response.getWriter();
-        VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
-        Template template = ve.getTemplate("static/dashboard.html");
+        TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
         VelocityContext context = new VelocityContext();
         context.put("username", username);
         context.put("allLinks", links);
-        template.merge(context, out);
+        templateRenderer.render("static/dashboard.html", context, out);
     }
 
     /**
@@ -1,17 +1,21 @@
 package servlets;
 
+import hotelapp.ReviewData;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import server.ReviewsDatabaseHandler;
 
 /**
  * This class is a servlet that handles requests related to deleting reviews for hotels.
  * It handles HTTP GET requests
  */
 public class DeleteReviewServlet extends HttpServlet {
-    private final ReviewsDatabaseHandler reviewsDatabaseHandler = ReviewsDatabaseHandler.getInstance();
+    private final ReviewData reviewData;
 
+    public DeleteReviewServlet(ReviewData reviewData) {
+        super();
+        this.reviewData = reviewData;
+    }
 
     /**
      * Handles the HTTP GET request. This method processes the deletion of a review.
@@ -26,7 +30,7 @@ public class DeleteReviewServlet extends HttpServlet {
             response.setStatus(HttpServletResponse.SC_OK);
             String reviewId = request.getParameter("reviewId");
             String hotelId = request.getParameter("hotelId");
-            reviewsDatabaseHandler.removeReview(reviewId);
+            reviewData.removeReview(reviewId);
             response.sendRedirect("hotelDetails?id=" + hotelId);
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -1,13 +1,13 @@
 package servlets;
 
 import data.Review;
+import hotelapp.ReviewData;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import server.ReviewsDatabaseHandler;
+import server.TemplateRenderer;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -20,7 +20,12 @@ public class EditReviewServlet extends HttpServlet {
     private Review review;
     private String hotelId;
     private final ReviewsDatabaseHandler reviewsDatabaseHandler = ReviewsDatabaseHandler.getInstance();
+    private final ReviewData reviewData;
 
+    public EditReviewServlet(ReviewData reviewData) {
+        super();
+        this.reviewData = reviewData;
+    }
 
     /**
      * Handles the HTTP GET request to retrieve the review data and display the edit form.
@@ -40,11 +45,10 @@ public class EditReviewServlet extends HttpServlet {
             hotelId = request.getParameter("hotelId");
             review = reviewsDatabaseHandler.getReview(hotelId, reviewId);
 
-            VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+            TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
             VelocityContext context = new VelocityContext();
             context.put("review", review);
-            Template template = ve.getTemplate("static/editReview.html");
-            template.merge(context, out);
+            templateRenderer.render("static/editReview.html", context, out);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -63,7 +67,7 @@ public class EditReviewServlet extends HttpServlet {
         String text = request.getParameter("text");
         review.setText(text);
         review.setTitle(title);
-        reviewsDatabaseHandler.editeReview(review);
+        reviewData.editReview(review);
         response.sendRedirect("/hotelDetails?id=" + hotelId);
     }
 }
@@ -1,9 +1,8 @@
 package servlets;
 
 import jakarta.servlet.http.*;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
+import server.TemplateRenderer;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -34,7 +33,7 @@ public class HomePageServlet extends HttpServlet {
         HttpSession session = request.getSession();
         String username = (String) session.getAttribute("currentUser");
 
-        VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+        TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
         VelocityContext context = new VelocityContext();
         if (username != null) {
             context.put("username", username);
@@ -45,7 +44,6 @@ public class HomePageServlet extends HttpServlet {
         context.put("allReviews", new HashSet<>());
         context.put("lastLogin", session.getAttribute("lastLogin"));
 
-        Template template = ve.getTemplate("static/homePage.html");
-        template.merge(context, out);
+        templateRenderer.render("static/homePage.html", context, out);
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package servlets;
 
 import com.google.gson.Gson;
 import data.Review;
+import data.ReviewPage;
 import hotelapp.ReviewData;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,14 +12,16 @@ import org.apache.commons.text.StringEscapeUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Servlet for handling hotel review requests.
- * It retrieves hotel reviews based on pagination (offset and limit)
+ * It retrieves pages of hotel reviews using cursor-based pagination
  * and sends them back as a JSON response.
  */
 public class HotelReviewsServlet extends HttpServlet {
+    private static final int PAGE_SIZE = 5;
     private final ReviewData reviewData;
 
     public HotelReviewsServlet(ReviewData reviewData) {
@@ -28,10 +31,13 @@ public class HotelReviewsServlet extends HttpServlet {
 
     /**
      * Handles GET requests to retrieve hotel reviews.
-     * Supports pagination with actions to move forwards or backwards in the list of reviews.
-     * The reviews are returned as a JSON array.
+     * If the request has a cursor or direction parameter, the page after ("next") or before ("prev") the cursor
+     * is returned as {"reviews": [...], "nextCursor": "...", "prevCursor": "..."}, where a missing cursor means
+     * there is no page in that direction.
+     * Otherwise the older action=next/back contract is used: the current page is kept in the session
+     * and the reviews are returned as a JSON array.
      *
-     * @param request  the HTTP request containing parameters like hotelId and action (next/back)
+     * @param request  the HTTP request containing parameters like hotelId, cursor and direction, or action (next/back)
      * @param response the HTTP response where reviews are sent back as JSON
      * @throws IOException if an input or output error occurs during response handling
      */
@@ -41,36 +47,79 @@ public class HotelReviewsServlet extends HttpServlet {
         response.setStatus(HttpServletResponse.SC_OK);
         PrintWriter out = response.getWriter();
 
-        int offset = 0;
-        int limit = 5;
-        HttpSession session = request.getSession();
-        Object res = session.getAttribute("offset");
-        if (res == null) {
-            offset = 0;
-        } else {
-            offset = (int) res;
-        }
-        String action = request.getParameter("action");
-        if (action.equals("next")) {
-            offset = offset + limit;
-
-        } else if (action.equals("back")) {
-            offset = Math.max(0, offset - limit);
-
+        String hotelId = StringEscapeUtils.escapeHtml4(request.getParameter("hotelId"));
+        if (hotelId == null || hotelId.isEmpty()) {
+            return;
         }
-        session.setAttribute("offset", offset);
+        Gson gson = new Gson();
+        try {
+            if (request.getParameter("cursor") != null || request.getParameter("direction") != null) {
+                boolean forward = !"prev".equals(request.getParameter("direction"));
+                ReviewPage page = reviewData.getReviews(hotelId, request.getParameter("cursor"), forward, PAGE_SIZE);
+                out.println(gson.toJson(page));
+                return;
+            }
 
-        String hotelId = StringEscapeUtils.escapeHtml4(request.getParameter("hotelId"));
-        if (hotelId != null && !hotelId.isEmpty()) {
-            List<Review> reviews = reviewData.getReviews(hotelId, limit, offset);
+            List<Review> reviews = getSessionPage(request.getSession(), hotelId, request.getParameter("action"));
             if (reviews != null && !reviews.isEmpty()) {
-                Gson gson = new Gson();
-                String jsonReviews = gson.toJson(reviews);
-                out.println(jsonReviews);
+                out.println(gson.toJson(reviews));
             } else {
                 out.println("{\"message\": \"No more reviews available.\", \"noMoreReviews\": true}");
             }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.println("{\"message\": \"Invalid cursor.\"}");
+        }
+    }
+
+    /**
+     * Supports the action=next/back contract by keeping the cursors of the page the user is on in the session.
+     *
+     * @param session the session of the user
+     * @param hotelId id of the hotel
+     * @param action  "next", "back", or anything else for the first page
+     * @return the reviews on the requested page, or an empty list if there are no more reviews
+     */
+    private List<Review> getSessionPage(HttpSession session, String hotelId, String action) {
+        String attribute = "reviewPage:" + hotelId;
+        SessionPage current = (SessionPage) session.getAttribute(attribute);
+        SessionPage requested;
+        if (current == null || (!"next".equals(action) && !"back".equals(action))) {
+            requested = new SessionPage(null, true);
+        } else if ("next".equals(action)) {
+            if (current.page.getNextCursor() == null) {
+                current.pastEnd = true;
+                session.setAttribute(attribute, current);
+                return Collections.emptyList();
+            }
+            requested = new SessionPage(current.page.getNextCursor(), true);
+        } else if (current.pastEnd) {
+            requested = new SessionPage(current.cursor, current.forward);
+        } else if (current.page.getPrevCursor() != null) {
+            requested = new SessionPage(current.page.getPrevCursor(), false);
+        } else {
+            requested = new SessionPage(null, true);
+        }
+
+        requested.page = reviewData.getReviews(hotelId, requested.cursor, requested.forward, PAGE_SIZE);
+        if (!requested.page.getReviews().isEmpty()) {
+            session.setAttribute(attribute, requested);
         }
+        return requested.page.getReviews();
     }
 
+    /**
+     * The request that loaded the page a user is on, stored in the session.
+     */
+    private static class SessionPage {
+        private final String cursor;
+        private final boolean forward;
+        private ReviewPage page;
+        private boolean pastEnd = false;
+
+        SessionPage(String cursor, boolean forward) {
+            this.cursor = cursor;
+            this.forward = forward;
+        }
+    }
 }
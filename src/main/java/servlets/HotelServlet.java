@@ -1,18 +1,23 @@
 package servlets;
 
 import data.Hotel;
+import data.HotelFacetResult;
+import data.HotelFilter;
+import data.HotelPage;
 import hotelapp.HotelLoader;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.apache.commons.text.StringEscapeUtils;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import server.HotelDatabaseHandler;
+import server.TemplateRenderer;
 
 import java.io.PrintWriter;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,6 +26,11 @@ import java.util.List;
  * It handles HTTP GET requests
  */
 public class HotelServlet extends HttpServlet {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    // small enough that the first part of the page is sent before the listing is rendered
+    private static final int RESPONSE_BUFFER_SIZE = 8 * 1024;
+    private static final String HOTEL_CARD_TEMPLATE = "static/fragments/hotelCard.html";
     private final HotelLoader hotelLoader;
     private final HotelDatabaseHandler hotelDatabaseHandler = HotelDatabaseHandler.getInstance();
 
@@ -31,10 +41,14 @@ public class HotelServlet extends HttpServlet {
 
     /**
      * Handles HTTP GET requests for fetching hotel information based on the provided hotelId or hotelName.
-     * If no parameters are provided, it returns all hotels.
-     * The results are rendered using the Velocity template engine.
+     * Otherwise it returns the hotels matching the city, state, minRating, minReviews and maxReviews facets,
+     * or all hotels if none of them is given, together with the number of hotels for every facet value.
+     * The results of a hotelName search and the facet listing are paged: the page after a hotel is requested with after=hotelId, and a page by its
+     * number with page; size sets the number of hotels on a page.
+     * The results are rendered using the Velocity template engine into a small response buffer, so the
+     * response is sent in chunks while it is rendered instead of once it is complete.
      *
-     * @param request  The HTTP request containing the hotelId or hotelName parameters.
+     * @param request  The HTTP request containing the hotelId or hotelName parameters, or the facets and paging parameters.
      * @param response The HTTP response used to send the rendered page.
      */
     @Override
@@ -42,9 +56,10 @@ public class HotelServlet extends HttpServlet {
         try {
             response.setContentType("text/html");
             response.setStatus(HttpServletResponse.SC_OK);
+            response.setBufferSize(RESPONSE_BUFFER_SIZE);
             PrintWriter out = response.getWriter();
 
-            VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+            TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
             VelocityContext context = new VelocityContext();
             HttpSession session = request.getSession();
             String username = (String) session.getAttribute("currentUser");
@@ -71,20 +86,105 @@ public class HotelServlet extends HttpServlet {
                 Hotel hotel = hotelDatabaseHandler.getHotelById(hotelId);
                 if (hotel != null) {
                     hotels.add(hotel);
-                    context.put("hotels", hotels);
                 } else {
                     response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 }
             } else if (hotelName != null && !hotelName.isEmpty()) {//hotel name
-                context.put("hotels", hotelLoader.findHotelsByKeyword(hotelName));
-            } else {//show all
-                context.put("hotels", hotelDatabaseHandler.getAllHotels());
+                List<Hotel> matches = hotelLoader.findHotelsByKeyword(hotelName);
+                HotelPage page = getPage(request, matches);
+                hotels = page.getHotels();
+                context.put("page", page);
+                context.put("filterQuery", "hotelName=" + URLEncoder.encode(hotelName, StandardCharsets.UTF_8));
+            } else {//show all, filtered by the facets
+                HotelFilter filter = new HotelFilter(request.getParameter("city"), request.getParameter("state"),
+                        getIntParameter(request, "minRating", 0), getIntParameter(request, "minReviews", 0),
+                        getIntParameter(request, "maxReviews", -1));
+                HotelFacetResult result = hotelDatabaseHandler.filterHotels(filter);
+                int size = getPageSize(request);
+                String after = request.getParameter("after");
+                HotelPage page = after != null && !after.isEmpty()
+                        ? result.getPageAfter(after, size)
+                        : result.getPage(getPageNumber(request), size);
+                hotels = page.getHotels();
+                context.put("page", page);
+                context.put("facets", result);
+                context.put("filter", filter);
+                context.put("filterQuery", filter.toQueryString());
             }
-            Template template = ve.getTemplate("static/homePage.html");
-            template.merge(context, out);
+            context.put("hotels", hotels);
+            context.put("hotelCards", getHotelCards(templateRenderer, hotels));
+            templateRenderer.render("static/homePage.html", context, out);
+            out.flush();
         } catch (Exception ex) {
             System.out.println(ex);
         }
 
     }
+
+    /**
+     * Returns the cards of the hotels as HTML. A card is rendered, or taken from the fragment cache,
+     * only when the page template reaches it, so the first cards are sent while the later ones are rendered.
+     *
+     * @param templateRenderer renderer of the templates
+     * @param hotels           hotels to list
+     * @return one card for every hotel
+     */
+    private List<String> getHotelCards(TemplateRenderer templateRenderer, List<Hotel> hotels) {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                Hotel hotel = hotels.get(index);
+                return templateRenderer.renderFragment(HOTEL_CARD_TEMPLATE, hotel.getId(),
+                        hotelDatabaseHandler.getHotelVersion(hotel.getId()), context -> context.put("hotel", hotel));
+            }
+
+            @Override
+            public int size() {
+                return hotels.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the requested page of a list of hotels, by the after or page parameter
+     *
+     * @param request the HTTP request
+     * @param hotels  all hotels of the listing
+     * @return the page
+     */
+    private static HotelPage getPage(HttpServletRequest request, List<Hotel> hotels) {
+        int size = getPageSize(request);
+        String after = request.getParameter("after");
+        return after != null && !after.isEmpty()
+                ? HotelPage.after(hotels, after, size)
+                : HotelPage.of(hotels, getPageNumber(request), size);
+    }
+
+    private static int getPageSize(HttpServletRequest request) {
+        return Math.min(MAX_PAGE_SIZE, Math.max(1, getIntParameter(request, "size", DEFAULT_PAGE_SIZE)));
+    }
+
+    private static int getPageNumber(HttpServletRequest request) {
+        return Math.max(1, getIntParameter(request, "page", 1));
+    }
+
+    /**
+     * Reads an integer parameter
+     *
+     * @param request      the HTTP request
+     * @param name         name of the parameter
+     * @param defaultValue value used when the parameter is missing or not a number
+     * @return value of the parameter
+     */
+    private static int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 }
@@ -1,15 +1,15 @@
 package servlets;
 
 import data.Hotel;
+import hotelapp.IngestProgress;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.apache.commons.text.StringEscapeUtils;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import server.HotelDatabaseHandler;
+import server.TemplateRenderer;
 
 import java.io.PrintWriter;
 
@@ -18,13 +18,24 @@ import java.io.PrintWriter;
  * It handles HTTP GET requests
  */
 public class HotelsDetailsServlet extends HttpServlet {
+    private static final int NEARBY_HOTELS = 5;
+    private static final String HOTEL_HEADER_TEMPLATE = "static/fragments/hotelHeader.html";
     private final HotelDatabaseHandler hotelDatabaseHandler = HotelDatabaseHandler.getInstance();
+    private final IngestProgress ingestProgress;
+
+    public HotelsDetailsServlet(IngestProgress ingestProgress) {
+        super();
+        this.ingestProgress = ingestProgress;
+    }
 
 
     /**
      * Handles HTTP GET requests to display hotel details and reviews.
      * Retrieves the hotel by ID, reviews for the hotel, and calculates the average rating.
      * Uses Apache Velocity to render the hotel details page with the hotel information and reviews.
+     * The hotels nearest to the hotel are listed as well. The part of the page showing the hotel is the same
+     * for every user, so it is rendered once for every version of the hotel's data and then cached.
+     * While the reviews of the hotel are still being loaded, the page is marked as partial.
      *
      * @param request  The HTTP request object.
      * @param response The HTTP response object.
@@ -35,7 +46,7 @@ public class HotelsDetailsServlet extends HttpServlet {
             response.setContentType("text/html");
             response.setStatus(HttpServletResponse.SC_OK);
             PrintWriter out = response.getWriter();
-            VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+            TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
             VelocityContext context = new VelocityContext();
             HttpSession session = request.getSession();
             String username = (String) session.getAttribute("currentUser");
@@ -45,13 +56,24 @@ public class HotelsDetailsServlet extends HttpServlet {
                 if (hotelId != null && !hotelId.isEmpty()) {
                     Hotel hotel = hotelDatabaseHandler.getHotelById(hotelId);
                     context.put("hotel", hotel);
-                    context.put("aveRating", String.format("%.2f", hotelDatabaseHandler.calculateAvgRating(hotelId)));
+                    if (hotel != null) {
+                        context.put("hotelHeader", templateRenderer.renderFragment(HOTEL_HEADER_TEMPLATE, hotelId,
+                                hotelDatabaseHandler.getHotelVersion(hotelId), header -> {
+                                    header.put("hotel", hotel);
+                                    header.put("aveRating", String.format("%.2f", hotelDatabaseHandler.calculateAvgRating(hotelId)));
+                                    header.put("nearbyHotels", hotelDatabaseHandler.getNearbyHotels(hotelId, NEARBY_HOTELS));
+                                }));
+                    }
+                    if (ingestProgress.isPartial(hotelId)) {
+                        context.put("partial", true);
+                        context.put("filesDone", ingestProgress.getFilesDone());
+                        context.put("filesFound", ingestProgress.getFilesFound());
+                    }
                 }
             } else {
                 context.put("username", null);
             }
-            Template template = ve.getTemplate("static/hotelDetail.html");
-            template.merge(context, out);
+            templateRenderer.render("static/hotelDetail.html", context, out);
         } catch (Exception e) {
             System.out.println(e);
         }
@@ -0,0 +1,42 @@
+package servlets;
+
+import com.google.gson.GsonBuilder;
+import hotelapp.IngestProgress;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Servlet that reports the progress of the review load running in the background, as JSON:
+ * {"state": "RUNNING", "ready": false, "filesFound": ..., "filesDone": ..., "walkFinished": ...,
+ * "reviewsParsed": ..., "reviewsLoaded": ..., "elapsedSeconds": ..., "etaSeconds": ...}
+ * where etaSeconds is null until the number of files is known.
+ * The status code is 503 unless the load is DONE, so it can be used as a readiness check.
+ */
+public class IngestStatusServlet extends HttpServlet {
+    private final IngestProgress ingestProgress;
+
+    public IngestStatusServlet(IngestProgress ingestProgress) {
+        super();
+        this.ingestProgress = ingestProgress;
+    }
+
+    /**
+     * Handles GET requests for the load status
+     *
+     * @param request  the HTTP request
+     * @param response the HTTP response where the status is sent as JSON
+     * @throws IOException if an input or output error occurs during response handling
+     */
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "no-store");
+        response.setStatus(ingestProgress.isReady() ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        PrintWriter out = response.getWriter();
+        out.println(new GsonBuilder().serializeNulls().create().toJson(ingestProgress.toStatus()));
+    }
+}
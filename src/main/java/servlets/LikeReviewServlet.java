@@ -35,7 +35,6 @@ public class LikeReviewServlet extends HttpServlet {
         String currentUser = (String) session.getAttribute("currentUser");
 
         DatabaseHandler dbHandler = DatabaseHandler.getInstance();
-        dbHandler.createLikesTable();
         int likeCount = dbHandler.getLikeCount(reviewId);
 
         if (dbHandler.AddLike(currentUser, reviewId)) {
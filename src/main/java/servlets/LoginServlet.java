@@ -2,9 +2,8 @@ package servlets;
 
 import jakarta.servlet.http.*;
 import org.apache.commons.text.StringEscapeUtils;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
+import server.TemplateRenderer;
 import server.UserDatabaseHandler;
 
 import java.io.IOException;
@@ -33,25 +32,23 @@ public class LoginServlet extends HttpServlet {
         HttpSession session = request.getSession();
         String username = (String) session.getAttribute("currentUser");
 
-        VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+        TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
         response.setContentType("text/html");
         response.setStatus(HttpServletResponse.SC_OK);
 
         if (username == null) {
-            Template template = ve.getTemplate("static/login.html");
             VelocityContext context = new VelocityContext();
             context.put("servletPath", request.getServletPath());
             context.put("errorMessage", "");
-            template.merge(context, out);
+            templateRenderer.render("static/login.html", context, out);
         } else {
             // already logged in
             String lastLogin = (String) session.getAttribute("lastLogin");
 
-            Template template = ve.getTemplate("static/homePage.html");
             VelocityContext context = new VelocityContext();
             context.put("username", username);
             context.put("lastLogin", lastLogin);
-            template.merge(context, out);
+            templateRenderer.render("static/homePage.html", context, out);
         }
     }
 
@@ -71,11 +68,10 @@ public class LoginServlet extends HttpServlet {
         String password = StringEscapeUtils.escapeHtml4(request.getParameter("password"));
         UserDatabaseHandler userDatabaseHandler = UserDatabaseHandler.getInstance();
         boolean authenticated = userDatabaseHandler.authenticateUser(username, password);
-        VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+        TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
 
         if (authenticated) {
             //after login
-            Template template = ve.getTemplate("static/homePage.html");
             VelocityContext context = new VelocityContext();
             HttpSession session = request.getSession();
 
@@ -99,13 +95,12 @@ public class LoginServlet extends HttpServlet {
 
             context.put("username", username);
             PrintWriter out = response.getWriter();
-            template.merge(context, out);
+            templateRenderer.render("static/homePage.html", context, out);
         } else {
             PrintWriter out = response.getWriter();
-            Template template = ve.getTemplate("static/login.html");
             VelocityContext context = new VelocityContext();
             context.put("errorMessage", "Username or Password is not correct");
-            template.merge(context, out);
+            templateRenderer.render("static/login.html", context, out);
         }
 
     }
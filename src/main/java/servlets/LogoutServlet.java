@@ -1,9 +1,8 @@
 package servlets;
 
 import jakarta.servlet.http.*;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
+import server.TemplateRenderer;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -28,16 +27,15 @@ public class LogoutServlet extends HttpServlet {
         HttpSession session = request.getSession();
         String username = (String) session.getAttribute("currentUser");
         PrintWriter out = response.getWriter();
-        VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
+        TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
         response.setContentType("text/html");
         response.setStatus(HttpServletResponse.SC_OK);
 
         if (username != null) {
             session.invalidate();
         }
-        Template template = ve.getTemplate("static/homePage.html");
         VelocityContext context = new VelocityContext();
         context.put("username", "");
-        template.merge(context, out);
+        templateRenderer.render("static/homePage.html", context, out);
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package servlets;
+
+import com.google.gson.Gson;
+import data.HotelCatalog;
+import data.NearbyHotel;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import server.HotelDatabaseHandler;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servlet for finding hotels near a hotel or a point.
+ * GET /api/hotels/nearby?hotelId=id&k=n returns the n hotels nearest to a hotel,
+ * GET /api/hotels/nearby?lat=..&lng=..&k=n the n hotels nearest to a point, and
+ * GET /api/hotels/nearby?lat=..&lng=..&radiusKm=r&k=n at most n hotels within r km of a point.
+ * The result is a JSON array of {"id", "name", "address", "city", "state", "distanceKm"}, nearest first.
+ */
+public class NearbyHotelsServlet extends HttpServlet {
+    private static final int DEFAULT_K = 10;
+    private static final int MAX_K = 100;
+    private final HotelDatabaseHandler hotelDatabaseHandler = HotelDatabaseHandler.getInstance();
+
+    /**
+     * Handles GET requests for nearby hotels
+     *
+     * @param request  the HTTP request containing hotelId, or lat and lng with an optional radiusKm, and an optional k
+     * @param response the HTTP response where the hotels are sent as JSON
+     * @throws IOException if an input or output error occurs during response handling
+     */
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        HotelCatalog catalog = hotelDatabaseHandler.getCatalog();
+        String hotelId = request.getParameter("hotelId");
+        List<NearbyHotel> hotels;
+        try {
+            int k = getK(request);
+            if (hotelId != null && !hotelId.isEmpty()) {
+                if (catalog.getById(hotelId) == null) {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    out.println("{\"message\": \"Hotel not found.\"}");
+                    return;
+                }
+                hotels = catalog.nearest(hotelId, k);
+            } else if (request.getParameter("lat") != null && request.getParameter("lng") != null) {
+                double lat = Double.parseDouble(request.getParameter("lat"));
+                double lng = Double.parseDouble(request.getParameter("lng"));
+                String radius = request.getParameter("radiusKm");
+                hotels = radius == null ? catalog.nearest(lat, lng, k)
+                        : catalog.within(lat, lng, Double.parseDouble(radius), k);
+            } else {
+                throw new NumberFormatException("Missing coordinates");
+            }
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.println("{\"message\": \"Give a hotelId, or lat and lng.\"}");
+            return;
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(hotels.size());
+        for (NearbyHotel nearby : hotels) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", nearby.getHotel().getId());
+            result.put("name", nearby.getHotel().getName());
+            result.put("address", nearby.getHotel().getAddress());
+            result.put("city", nearby.getHotel().getCity());
+            result.put("state", nearby.getHotel().getState());
+            result.put("distanceKm", Math.round(nearby.getDistanceKm() * 1000) / 1000.0);
+            results.add(result);
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        out.println(new Gson().toJson(results));
+    }
+
+    /**
+     * Reads the k parameter
+     *
+     * @param request the HTTP request
+     * @return number of hotels to return, between 1 and MAX_K
+     */
+    private int getK(HttpServletRequest request) {
+        String k = request.getParameter("k");
+        return k == null ? DEFAULT_K : Math.max(1, Math.min(MAX_K, Integer.parseInt(k)));
+    }
+}
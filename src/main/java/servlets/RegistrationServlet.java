@@ -5,9 +5,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.apache.commons.text.StringEscapeUtils;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
+import server.TemplateRenderer;
 import server.UserDatabaseHandler;
 
 import java.io.IOException;
@@ -36,13 +35,12 @@ public class RegistrationServlet extends HttpServlet {
         response.setStatus(HttpServletResponse.SC_OK);
         PrintWriter out = response.getWriter();
 
-        VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
-        Template template = ve.getTemplate("static/registration.html");
+        TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
 
         VelocityContext context = new VelocityContext();
         context.put("servletPath", request.getServletPath());
         context.put("errorMessage", "");
-        template.merge(context, out);
+        templateRenderer.render("static/registration.html", context, out);
 
     }
 
@@ -66,8 +64,7 @@ public class RegistrationServlet extends HttpServlet {
         HttpSession session = request.getSession();
 
         if (userDatabaseHandler.registerUser(username, password)) {
-            VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
-            Template template = ve.getTemplate("static/homePage.html");
+            TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
 
             VelocityContext context = new VelocityContext();
             String lastLogin = userDatabaseHandler.getLastLoginTime(username);
@@ -86,14 +83,13 @@ public class RegistrationServlet extends HttpServlet {
             userDatabaseHandler.updateLastLoginTime(username, currentLoginFormatted);
 
             PrintWriter out = response.getWriter();
-            template.merge(context, out);
+            templateRenderer.render("static/homePage.html", context, out);
         } else {
-            VelocityEngine ve = (VelocityEngine) getServletContext().getAttribute("velocityEngine");
-            Template template = ve.getTemplate("static/registration.html");
+            TemplateRenderer templateRenderer = (TemplateRenderer) getServletContext().getAttribute("templateRenderer");
             VelocityContext context = new VelocityContext();
             context.put("errorMessage", "Registration Failed!!!");
             PrintWriter out = response.getWriter();
-            template.merge(context, out);
+            templateRenderer.render("static/registration.html", context, out);
         }
     }
 }
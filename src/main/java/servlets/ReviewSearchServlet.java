@@ -0,0 +1,91 @@
+package servlets;
+
+import com.google.gson.Gson;
+import data.Review;
+import data.ReviewSearchHit;
+import hotelapp.ReviewData;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servlet for searching the titles and texts of the reviews.
+ * GET /api/reviews/search?q=words&hotelId=id&limit=n returns
+ * {"results": [{"score": ..., "review": {...}}, ...], "complete": true}, best matches first. hotelId and limit
+ * are optional. complete is false while the reviews stored before the server started are still being indexed.
+ */
+public class ReviewSearchServlet extends HttpServlet {
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 50;
+    private final ReviewData reviewData;
+
+    public ReviewSearchServlet(ReviewData reviewData) {
+        super();
+        this.reviewData = reviewData;
+    }
+
+    /**
+     * Handles GET requests to search reviews
+     *
+     * @param request  the HTTP request containing the q, and optional hotelId and limit parameters
+     * @param response the HTTP response where the matching reviews are sent as JSON
+     * @throws IOException if an input or output error occurs during response handling
+     */
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        String query = request.getParameter("q");
+        if (query == null || query.isBlank()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.println("{\"message\": \"Missing query.\"}");
+            return;
+        }
+        List<ReviewSearchHit> hits = reviewData.searchReviews(query, request.getParameter("hotelId"), getLimit(request));
+        List<Integer> reviewIds = new ArrayList<>(hits.size());
+        for (ReviewSearchHit hit : hits) {
+            reviewIds.add(hit.getReviewId());
+        }
+        Map<Integer, Review> reviews = reviewData.getReviewsById(reviewIds);
+
+        List<Map<String, Object>> results = new ArrayList<>(hits.size());
+        for (ReviewSearchHit hit : hits) {
+            Review review = reviews.get(hit.getReviewId());
+            if (review != null) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("score", hit.getScore());
+                result.put("review", review);
+                results.add(result);
+            }
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("results", results);
+        body.put("complete", reviewData.isSearchIndexReady());
+        response.setStatus(HttpServletResponse.SC_OK);
+        out.println(new Gson().toJson(body));
+    }
+
+    /**
+     * Reads the limit parameter
+     *
+     * @param request the HTTP request
+     * @return number of results to return, between 1 and MAX_LIMIT
+     */
+    private int getLimit(HttpServletRequest request) {
+        try {
+            String limit = request.getParameter("limit");
+            return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limit)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package servlets;
+
+import com.google.gson.Gson;
+import data.Hotel;
+import data.HotelCatalog;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import server.HotelDatabaseHandler;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servlet for completing hotel names while the user types in the search box.
+ * GET /api/suggest?q=prefix&limit=n returns [{"id": "...", "name": "..."}, ...].
+ * The answer only depends on the query and the hotel catalog, so responses can be cached; the ETag is a hash
+ * of the catalog's hotels, which stays the same across restarts only if the hotels do, and a request whose
+ * If-None-Match still matches it gets 304 Not Modified.
+ */
+public class SuggestServlet extends HttpServlet {
+    private static final int DEFAULT_LIMIT = 8;
+    private static final int MAX_LIMIT = 20;
+    private static final int MAX_AGE_SECONDS = 300;
+    private final HotelDatabaseHandler hotelDatabaseHandler = HotelDatabaseHandler.getInstance();
+
+    /**
+     * Handles GET requests for name completions
+     *
+     * @param request  the HTTP request containing the q and optional limit parameters
+     * @param response the HTTP response where the completions are sent as JSON
+     * @throws IOException if an input or output error occurs during response handling
+     */
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        HotelCatalog catalog = hotelDatabaseHandler.getCatalog();
+        String etag = "\"catalog-" + catalog.getContentHash() + "\"";
+        response.setHeader("Cache-Control", "public, max-age=" + MAX_AGE_SECONDS);
+        response.setHeader("ETag", etag);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String query = request.getParameter("q");
+        List<Map<String, String>> suggestions = new ArrayList<>();
+        if (query != null) {
+            for (Hotel hotel : catalog.suggest(query, getLimit(request))) {
+                Map<String, String> suggestion = new LinkedHashMap<>();
+                suggestion.put("id", hotel.getId());
+                suggestion.put("name", hotel.getName());
+                suggestions.add(suggestion);
+            }
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(HttpServletResponse.SC_OK);
+        PrintWriter out = response.getWriter();
+        out.println(new Gson().toJson(suggestions));
+    }
+
+    /**
+     * Reads the limit parameter
+     *
+     * @param request the HTTP request
+     * @return number of completions to return, between 1 and MAX_LIMIT
+     */
+    private int getLimit(HttpServletRequest request) {
+        try {
+            String limit = request.getParameter("limit");
+            return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limit)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package servlets;
+
+import com.google.gson.Gson;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import server.TemplateRenderer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Servlet that reports how long the Velocity templates take to render, as JSON:
+ * {"devMode": false, "templates": {"static/homePage.html": {"renders": ..., "averageMillis": ..., "maxMillis": ...}},
+ * "fragmentCache": {"hits": ..., "misses": ..., "size": ...}}
+ */
+public class TemplateMetricsServlet extends HttpServlet {
+    private final TemplateRenderer templateRenderer;
+
+    public TemplateMetricsServlet(TemplateRenderer templateRenderer) {
+        super();
+        this.templateRenderer = templateRenderer;
+    }
+
+    /**
+     * Handles GET requests for the template metrics
+     *
+     * @param request  the HTTP request
+     * @param response the HTTP response where the metrics are sent as JSON
+     * @throws IOException if an input or output error occurs during response handling
+     */
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "no-store");
+        response.setStatus(HttpServletResponse.SC_OK);
+        PrintWriter out = response.getWriter();
+        out.println(new Gson().toJson(templateRenderer.getMetrics()));
+    }
+}
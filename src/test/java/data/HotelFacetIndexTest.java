@@ -0,0 +1,111 @@
+package data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the facet index with filtering every hotel one by one.
+ */
+public class HotelFacetIndexTest {
+    private static final String[] CITIES = {"San Francisco", "Oakland", "Berkeley", "Los Angeles"};
+    private static final String[] STATES = {"CA", "NV"};
+    private static final int HOTELS = 2000;
+
+    private final Random random = new Random(3);
+    private List<Hotel> hotels;
+    private long[] ratingSums;
+    private int[] ratingCounts;
+    private HotelFacetIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        hotels = new ArrayList<>();
+        ratingSums = new long[HOTELS];
+        ratingCounts = new int[HOTELS];
+        List<HotelRating> ratings = new ArrayList<>();
+        for (int i = 0; i < HOTELS; i++) {
+            hotels.add(new Hotel("Hotel " + i, String.valueOf(i), "", CITIES[random.nextInt(CITIES.length)],
+                    STATES[random.nextInt(STATES.length)], "37.7", "-122.4"));
+            if (random.nextInt(5) > 0) {
+                ratingCounts[i] = random.nextInt(700) + 1;
+                ratingSums[i] = ratingCounts[i] + random.nextInt(ratingCounts[i] * 4 + 1);
+                ratings.add(new HotelRating(String.valueOf(i), ratingSums[i], ratingCounts[i], new int[5]));
+            }
+        }
+        index = new HotelFacetIndex(new HotelCatalog(1, hotels), ratings);
+    }
+
+    @Test
+    public void filterMatchesEveryHotelCheckedOneByOne() {
+        for (int query = 0; query < 300; query++) {
+            if (query % 2 == 0) {
+                int hotel = random.nextInt(HOTELS);
+                ratingCounts[hotel] = random.nextInt(120);
+                ratingSums[hotel] = ratingCounts[hotel] == 0 ? 0 : ratingCounts[hotel] + random.nextInt(ratingCounts[hotel] * 4 + 1);
+                index.updateRating(String.valueOf(hotel), ratingSums[hotel], ratingCounts[hotel]);
+            }
+            HotelFilter filter = randomFilter();
+            HotelFacetResult result = index.filter(filter);
+            assertEquals(expectedHotels(filter), result.getHotels(), "filter " + filter.toQueryString());
+            assertEquals(result.getHotels().size(), result.getTotal());
+        }
+    }
+
+    @Test
+    public void cityCountsIgnoreTheCityFacet() {
+        HotelFilter filter = new HotelFilter("Oakland", "CA", 3, 0, -1);
+        HotelFacetResult result = index.filter(filter);
+        for (FacetCount count : result.getCityCounts()) {
+            HotelFilter other = new HotelFilter(count.getValue(), "CA", 3, 0, -1);
+            assertEquals(expectedHotels(other).size(), count.getCount(), count.getValue());
+        }
+        for (FacetCount count : result.getRatingCounts()) {
+            HotelFilter other = new HotelFilter("Oakland", "CA", Integer.parseInt(count.getValue()), 0, -1);
+            assertEquals(expectedHotels(other).size(), count.getCount(), count.getLabel());
+        }
+    }
+
+    @Test
+    public void resultIsNotChangedByLaterRatingUpdates() {
+        HotelFacetResult result = index.filter(new HotelFilter(null, null, 4, 0, -1));
+        List<Hotel> before = result.getHotels();
+        for (Hotel hotel : before) {
+            index.updateRating(hotel.getId(), 0, 0);
+        }
+        assertEquals(before, result.getHotels());
+        assertTrue(index.filter(new HotelFilter(null, null, 4, 0, -1)).getHotels().stream()
+                .noneMatch(before::contains));
+    }
+
+    private HotelFilter randomFilter() {
+        String city = random.nextBoolean() ? CITIES[random.nextInt(CITIES.length)] : null;
+        String state = random.nextBoolean() ? STATES[random.nextInt(STATES.length)] : null;
+        int minRating = random.nextInt(6);
+        int minReviews = random.nextInt(3) == 0 ? random.nextInt(200) : 0;
+        int maxReviews = random.nextInt(3) == 0 ? minReviews + random.nextInt(400) : -1;
+        return new HotelFilter(city, state, minRating, minReviews, maxReviews);
+    }
+
+    private List<Hotel> expectedHotels(HotelFilter filter) {
+        List<Hotel> expected = new ArrayList<>();
+        for (int i = 0; i < HOTELS; i++) {
+            Hotel hotel = hotels.get(i);
+            double average = ratingCounts[i] == 0 ? 0 : (double) ratingSums[i] / ratingCounts[i];
+            if ((filter.getCity() == null || hotel.getCity().equals(filter.getCity()))
+                    && (filter.getState() == null || hotel.getState().equals(filter.getState()))
+                    && (filter.getMinRating() == 0 || average >= filter.getMinRating())
+                    && ratingCounts[i] >= filter.getMinReviews()
+                    && (filter.getMaxReviews() < 0 || ratingCounts[i] <= filter.getMaxReviews())) {
+                expected.add(hotel);
+            }
+        }
+        return expected;
+    }
+}
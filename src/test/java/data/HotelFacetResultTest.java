@@ -0,0 +1,80 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the paging of facet results by page number and by cursor.
+ */
+public class HotelFacetResultTest {
+    private static final String[] CITIES = {"San Francisco", "Oakland", "Berkeley"};
+    private static final String[] STATES = {"CA", "NV"};
+    private static final int HOTELS = 600;
+
+    private final List<Hotel> hotels = new ArrayList<>();
+    private final HotelFacetIndex index;
+
+    public HotelFacetResultTest() {
+        Random random = new Random(5);
+        List<HotelRating> ratings = new ArrayList<>();
+        for (int i = 0; i < HOTELS; i++) {
+            hotels.add(new Hotel("Hotel " + i, String.valueOf(i), "", CITIES[random.nextInt(CITIES.length)],
+                    STATES[random.nextInt(STATES.length)], "37.7", "-122.4"));
+            int count = random.nextInt(50) + 1;
+            ratings.add(new HotelRating(String.valueOf(i), count + random.nextInt(count * 4 + 1), count, new int[5]));
+        }
+        index = new HotelFacetIndex(new HotelCatalog(1, hotels), ratings);
+    }
+
+    @Test
+    public void pagesByCursorWalkEveryMatchOnce() {
+        HotelFacetResult result = index.filter(new HotelFilter("Oakland", null, 0, 0, -1));
+        List<Hotel> all = result.getHotels();
+        for (int size : new int[]{1, 7, 50, 500}) {
+            List<Hotel> walked = new ArrayList<>();
+            HotelPage page = result.getPage(1, size);
+            int number = 1;
+            while (true) {
+                assertEquals(number, page.getNumber());
+                walked.addAll(page.getHotels());
+                if (!page.hasNext()) {
+                    break;
+                }
+                page = result.getPageAfter(page.getNextCursor(), size);
+                number++;
+            }
+            assertEquals(all, walked, "size " + size);
+            assertEquals(number, page.getPageCount());
+        }
+    }
+
+    @Test
+    public void pagesByNumberMatchTheSublist() {
+        HotelFacetResult result = index.filter(new HotelFilter(null, "NV", 2, 0, -1));
+        List<Hotel> all = result.getHotels();
+        int size = 13;
+        for (int number = 1; number <= all.size() / size + 2; number++) {
+            HotelPage page = result.getPage(number, size);
+            int from = Math.min(all.size(), (number - 1) * size);
+            assertEquals(all.subList(from, Math.min(all.size(), from + size)), page.getHotels(), "page " + number);
+            assertEquals(from + size < all.size(), page.hasNext());
+        }
+    }
+
+    @Test
+    public void unknownCursorStartsAtTheFirstPage() {
+        HotelFacetResult result = index.filter(new HotelFilter(null, null, 0, 0, -1));
+        HotelPage page = result.getPageAfter("no such hotel", 10);
+        assertEquals(1, page.getNumber());
+        assertFalse(page.hasPrevious());
+        assertEquals(hotels.subList(0, 10), page.getHotels());
+        assertNull(result.getPage(HOTELS, 10).getNextCursor());
+    }
+}
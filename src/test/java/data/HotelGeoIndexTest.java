@@ -0,0 +1,95 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the k-d tree with the haversine distance to every hotel.
+ */
+public class HotelGeoIndexTest {
+    private static final int HOTELS = 5000;
+
+    @Test
+    public void nearestAndWithinMatchEveryDistance() {
+        Random random = new Random(2);
+        List<Hotel> hotels = new ArrayList<>();
+        for (int i = 0; i < HOTELS; i++) {
+            // uniform on the sphere, so the poles and the date line are covered
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lng = random.nextDouble() * 360 - 180;
+            hotels.add(new Hotel("Hotel " + i, String.valueOf(i), "", "", "", String.valueOf(lat), String.valueOf(lng)));
+        }
+        HotelGeoIndex index = new HotelGeoIndex(hotels);
+
+        for (int query = 0; query < 50; query++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+            double[] distances = new double[HOTELS];
+            Integer[] byDistance = new Integer[HOTELS];
+            for (int i = 0; i < HOTELS; i++) {
+                byDistance[i] = i;
+                distances[i] = haversine(lat, lng, hotels.get(i));
+            }
+            Arrays.sort(byDistance, Comparator.comparingDouble(i -> distances[i]));
+
+            List<NearbyHotel> nearest = index.nearest(lat, lng, 10);
+            assertEquals(10, nearest.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(String.valueOf(byDistance[i]), nearest.get(i).getHotel().getId());
+                assertEquals(distances[byDistance[i]], nearest.get(i).getDistanceKm(), 1e-6);
+            }
+
+            long inRadius = Arrays.stream(distances).filter(distance -> distance <= 500).count();
+            assertEquals(inRadius, index.within(lat, lng, 500, HOTELS).size());
+            List<NearbyHotel> within = index.within(lat, lng, 2000, 5);
+            assertEquals(Math.min(5, Arrays.stream(distances).filter(distance -> distance <= 2000).count()), within.size());
+            for (int i = 0; i < within.size(); i++) {
+                assertEquals(String.valueOf(byDistance[i]), within.get(i).getHotel().getId());
+            }
+        }
+    }
+
+    @Test
+    public void nearestToAHotelLeavesItOut() {
+        List<Hotel> hotels = List.of(
+                new Hotel("A", "a", "", "", "", "37.7749", "-122.4194"),
+                new Hotel("B", "b", "", "", "", "37.8044", "-122.2712"),
+                new Hotel("C", "c", "", "", "", "34.0522", "-118.2437"),
+                new Hotel("Bad", "x", "", "", "", "abc", null));
+        HotelGeoIndex index = new HotelGeoIndex(hotels);
+
+        List<NearbyHotel> nearest = index.nearest(0, 5);
+        assertEquals(List.of("b", "c"), List.of(nearest.get(0).getHotel().getId(), nearest.get(1).getHotel().getId()));
+        assertEquals(13.4, nearest.get(0).getDistanceKm(), 0.2);
+        assertTrue(index.nearest(3, 5).isEmpty());
+        assertTrue(index.within(37.7749, -122.4194, 20, 0).isEmpty());
+    }
+
+    @Test
+    public void findsHotelsAcrossTheDateLine() {
+        List<Hotel> hotels = List.of(
+                new Hotel("West", "w", "", "", "", "0", "179.9"),
+                new Hotel("East", "e", "", "", "", "0", "-179.9"),
+                new Hotel("Far", "f", "", "", "", "0", "0"));
+        List<NearbyHotel> nearest = new HotelGeoIndex(hotels).within(0, 180, 50, 10);
+        assertEquals(2, nearest.size());
+    }
+
+    private static double haversine(double lat, double lng, Hotel hotel) {
+        double lat1 = Math.toRadians(lat);
+        double lat2 = Math.toRadians(Double.parseDouble(hotel.getLat()));
+        double dLat = lat2 - lat1;
+        double dLng = Math.toRadians(Double.parseDouble(hotel.getLng()) - lng);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * 6371.0088 * Math.asin(Math.sqrt(h));
+    }
+}
@@ -0,0 +1,57 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static data.HotelSearchIndexTest.hotel;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotelPageTest {
+    private final List<Hotel> hotels = new ArrayList<>();
+
+    public HotelPageTest() {
+        for (int i = 0; i < 23; i++) {
+            hotels.add(hotel("id " + i, "Hotel " + i));
+        }
+    }
+
+    @Test
+    public void cursorsWalkTheListOnce() {
+        List<Hotel> walked = new ArrayList<>();
+        HotelPage page = HotelPage.of(hotels, 1, 5);
+        while (true) {
+            walked.addAll(page.getHotels());
+            if (!page.hasNext()) {
+                break;
+            }
+            HotelPage next = HotelPage.after(hotels, page.getNextCursor(), 5);
+            assertEquals(page.getNumber() + 1, next.getNumber());
+            page = next;
+        }
+        assertEquals(hotels, walked);
+        assertEquals(5, page.getNumber());
+        assertEquals(5, page.getPageCount());
+    }
+
+    @Test
+    public void pageNumbersPastTheEndAreEmpty() {
+        assertEquals(hotels.subList(20, 23), HotelPage.of(hotels, 5, 5).getHotels());
+        HotelPage past = HotelPage.of(hotels, 9, 5);
+        assertTrue(past.getHotels().isEmpty());
+        assertFalse(past.hasNext());
+        assertEquals(1, HotelPage.after(hotels, "unknown", 5).getNumber());
+    }
+
+    @Test
+    public void encodesTheCursor() {
+        HotelPage page = HotelPage.of(hotels, 1, 5);
+        assertEquals("id 4", page.getNextCursor());
+        assertEquals("id+4", page.getEncodedNextCursor());
+        assertNull(HotelPage.of(hotels, 5, 5).getEncodedNextCursor());
+    }
+}
@@ -0,0 +1,67 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotelSearchIndexTest {
+    private final List<Hotel> hotels = List.of(
+            hotel("1", "Hilton San Francisco Union Square"),
+            hotel("2", "Hotel Union"),
+            hotel("3", "Hilton Garden Inn"),
+            hotel("4", "Holiday Inn Express"),
+            hotel("5", "The Inn at Union Square"),
+            hotel("6", "Union"));
+    private final HotelSearchIndex index = new HotelSearchIndex(hotels);
+
+    @Test
+    public void matchesEveryWordAsAPrefix() {
+        assertEquals(List.of("1"), ids(index.search("hil uni")));
+        assertEquals(List.of("1", "3"), sorted(ids(index.search("HILTON"))));
+        assertEquals(List.of("3", "4", "5"), sorted(ids(index.search("inn"))));
+    }
+
+    @Test
+    public void fallsBackToPartsOfNames() {
+        assertEquals(List.of("1", "3"), sorted(ids(index.search("ilton"))));
+        assertTrue(index.search("xyz").isEmpty());
+        assertTrue(index.search("   ").isEmpty());
+    }
+
+    @Test
+    public void ranksWholeAndLeadingMatchesFirst() {
+        List<String> union = ids(index.search("union"));
+        assertEquals(List.of("1", "2", "5", "6"), sorted(union));
+        // the exact name first, then the shorter name starting with a whole word match
+        assertEquals("6", union.get(0));
+        assertEquals("5", ids(index.search("inn at union")).get(0));
+    }
+
+    @Test
+    public void returnsEveryHotelOnce() {
+        List<String> found = ids(index.search("in"));
+        assertEquals(found.size(), found.stream().distinct().count());
+    }
+
+    static Hotel hotel(String id, String name) {
+        return new Hotel(name, id, "", "San Francisco", "CA", "37.7", "-122.4");
+    }
+
+    static List<String> ids(List<Hotel> hotels) {
+        List<String> ids = new ArrayList<>();
+        for (Hotel hotel : hotels) {
+            ids.add(hotel.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> sorted(List<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        copy.sort(null);
+        return copy;
+    }
+}
@@ -0,0 +1,40 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static data.HotelSearchIndexTest.hotel;
+import static data.HotelSearchIndexTest.ids;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotelSuggesterTest {
+    private final HotelSuggester suggester = new HotelSuggester(List.of(
+            hotel("1", "Hilton San Francisco Union Square"),
+            hotel("2", "Hotel Union"),
+            hotel("3", "Hilton Garden Inn"),
+            hotel("4", "Union Hotel"),
+            hotel("5", "Hyatt")));
+
+    @Test
+    public void namesStartingWithThePrefixComeFirst() {
+        assertEquals(List.of("4", "2", "1"), ids(suggester.suggest("uni", 10)));
+        assertEquals(List.of("3", "1"), ids(suggester.suggest("HILTON", 10)));
+    }
+
+    @Test
+    public void matchesLaterWordsAcrossSpaces() {
+        assertEquals(List.of("1"), ids(suggester.suggest("union sq", 10)));
+        assertEquals(List.of("1"), ids(suggester.suggest("san fr", 10)));
+    }
+
+    @Test
+    public void stopsAtTheLimit() {
+        assertEquals(List.of("3", "1", "2", "5", "4"), ids(suggester.suggest("h", 5)));
+        assertEquals(List.of("3", "1"), ids(suggester.suggest("h", 2)));
+        assertTrue(suggester.suggest("h", 0).isEmpty());
+        assertTrue(suggester.suggest(" ", 5).isEmpty());
+        assertTrue(suggester.suggest("marriott", 5).isEmpty());
+    }
+}
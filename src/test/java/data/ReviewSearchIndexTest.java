@@ -0,0 +1,150 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReviewSearchIndexTest {
+    private final ReviewSearchIndex index = new ReviewSearchIndex();
+
+    @Test
+    public void ranksReviewsWithMoreMatchesFirst() {
+        index.add(1, "h1", "Nice stay", "The pool was clean");
+        index.add(2, "h1", "Pool", "Pool pool pool, the best pool");
+        index.add(3, "h2", "Noisy", "The room was noisy");
+
+        assertEquals(List.of(2, 1), reviewIds(index.search("pool", null, 10)));
+        assertEquals(List.of(3), reviewIds(index.search("NOISY room", null, 10)));
+        assertEquals(List.of(2), reviewIds(index.search("pool", null, 1)));
+        assertTrue(index.search("the was", null, 10).isEmpty());
+    }
+
+    @Test
+    public void filtersByHotel() {
+        index.add(1, "h1", null, "clean room");
+        index.add(2, "h2", null, "clean room");
+        List<ReviewSearchHit> hits = index.search("clean", "h2", 10);
+        assertEquals(List.of(2), reviewIds(hits));
+        assertEquals("h2", hits.get(0).getHotelId());
+        assertTrue(index.search("clean", "h3", 10).isEmpty());
+    }
+
+    @Test
+    public void editsAndRemovalsReplaceTheOldText() {
+        index.add(1, "h1", "Great", "friendly staff");
+        index.add(1, "h1", "Bad", "rude staff");
+        assertTrue(index.search("friendly", null, 10).isEmpty());
+        assertEquals(List.of(1), reviewIds(index.search("rude", null, 10)));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        assertTrue(index.search("staff", null, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void snapshotDoesNotOverwriteLaterChanges() {
+        index.startSnapshot();
+        index.add(1, "h1", null, "edited text");
+        index.add(2, "h1", null, "new review");
+        index.remove(3);
+        assertFalse(index.addFromSnapshot(1, "h1", null, "old text"));
+        assertFalse(index.addFromSnapshot(3, "h1", null, "deleted review"));
+        assertTrue(index.addFromSnapshot(4, "h1", null, "untouched review"));
+        index.finishSnapshot();
+
+        assertEquals(List.of(1), reviewIds(index.search("edited", null, 10)));
+        assertTrue(index.search("old", null, 10).isEmpty());
+        assertTrue(index.search("deleted", null, 10).isEmpty());
+        assertEquals(3, index.size());
+        assertTrue(index.addFromSnapshot(1, "h1", null, "old text"));
+    }
+
+    @Test
+    public void findsTheSameReviewsAfterManyRemovals() {
+        Random random = new Random(1);
+        String[] words = {"clean", "room", "pool", "noisy", "staff", "friendly", "breakfast", "view", "bed", "dirty"};
+        Map<Integer, String> texts = new HashMap<>();
+        for (int reviewId = 1; reviewId <= 6000; reviewId++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                text.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            texts.put(reviewId, text.toString());
+            index.add(reviewId, "h" + reviewId % 7, null, text.toString());
+        }
+        // enough removals to compact the index
+        for (int reviewId = 1; reviewId <= 4000; reviewId++) {
+            index.remove(reviewId);
+            texts.remove(reviewId);
+        }
+        assertEquals(texts.size(), index.size());
+
+        long expected = texts.values().stream().filter(text -> text.contains("breakfast")).count();
+        List<ReviewSearchHit> hits = index.search("breakfast", null, 10_000);
+        assertEquals(expected, hits.size());
+        for (ReviewSearchHit hit : hits) {
+            assertTrue(texts.containsKey(hit.getReviewId()));
+        }
+    }
+
+    @Test
+    public void prunedAndHotelResultsMatchTheFullRanking() {
+        Random random = new Random(2);
+        String[] words = {"clean", "room", "pool", "noisy", "staff", "friendly", "breakfast", "view", "bed", "dirty",
+                "parking", "spa", "elevator", "rooftop", "valet"};
+        for (int reviewId = 1; reviewId <= 20_000; reviewId++) {
+            StringBuilder text = new StringBuilder();
+            int length = 2 + random.nextInt(20);
+            for (int i = 0; i < length; i++) {
+                // later words are rarer, so queries mix long and short postings
+                text.append(words[(int) (words.length * Math.pow(random.nextDouble(), 2))]).append(' ');
+            }
+            index.add(reviewId, "h" + random.nextInt(40), random.nextInt(4) == 0 ? "valet" : null, text.toString());
+        }
+        for (int reviewId = 1; reviewId <= 20_000; reviewId += 3) {
+            index.remove(reviewId);
+        }
+        String[] queries = {"clean", "clean room", "valet rooftop", "spa elevator pool", "breakfast view bed parking"};
+        for (String query : queries) {
+            List<ReviewSearchHit> all = index.search(query, null, Integer.MAX_VALUE - 1);
+            for (int limit : new int[]{1, 10, 100}) {
+                assertSameRanking(all.subList(0, Math.min(limit, all.size())), index.search(query, null, limit), query);
+            }
+            for (String hotelId : new String[]{"h0", "h7", "h39"}) {
+                List<ReviewSearchHit> hotelHits = new ArrayList<>();
+                for (ReviewSearchHit hit : all) {
+                    if (hit.getHotelId().equals(hotelId)) {
+                        hotelHits.add(hit);
+                    }
+                }
+                assertSameRanking(hotelHits, index.search(query, hotelId, Integer.MAX_VALUE - 1), query + " in " + hotelId);
+                assertSameRanking(hotelHits.subList(0, Math.min(5, hotelHits.size())), index.search(query, hotelId, 5),
+                        query + " in " + hotelId);
+            }
+        }
+    }
+
+    private static void assertSameRanking(List<ReviewSearchHit> expected, List<ReviewSearchHit> actual, String query) {
+        assertEquals(expected.size(), actual.size(), query);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9, query);
+        }
+    }
+
+    private static List<Integer> reviewIds(List<ReviewSearchHit> hits) {
+        List<Integer> ids = new ArrayList<>();
+        for (ReviewSearchHit hit : hits) {
+            ids.add(hit.getReviewId());
+        }
+        return ids;
+    }
+}
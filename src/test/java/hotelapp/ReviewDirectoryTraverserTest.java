@@ -0,0 +1,97 @@
+package hotelapp;
+
+import data.Review;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ReviewParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReviewDirectoryTraverserTest {
+    private static final int FILES = 6;
+    private static final int REVIEWS_PER_FILE = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void loadFinishesWhenTheWriterThrowsAnError() throws IOException {
+        for (int i = 0; i < FILES; i++) {
+            Files.writeString(directory.resolve("hotel" + i + ".json"), "{}");
+        }
+        AtomicInteger chunksTaken = new AtomicInteger();
+        ReviewData failingReviewData = new ReviewData() {
+            @Override
+            public void addReviews(List<Review> allReviews) {
+                chunksTaken.incrementAndGet();
+                throw new OutOfMemoryError("test");
+            }
+        };
+        // a queue of one chunk fills up at once, so the parse threads depend on the writer to go on
+        ReviewDirectoryTraverser traverser = new ReviewDirectoryTraverser(2, 1, 1, new FixedReviewParser(),
+                new IngestProgress());
+
+        long loaded = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> traverser.traverseDirectory(directory.toString(), failingReviewData, new IngestManifest(true)));
+        assertEquals(FILES, loaded);
+        assertEquals(FILES * REVIEWS_PER_FILE / 100, chunksTaken.get());
+    }
+
+    @Test
+    public void writersWriteChunksAtTheSameTime() throws IOException {
+        for (int i = 0; i < FILES; i++) {
+            Files.writeString(directory.resolve("hotel" + i + ".json"), "{}");
+        }
+        AtomicInteger writing = new AtomicInteger();
+        AtomicInteger mostWriting = new AtomicInteger();
+        ReviewData slowReviewData = new ReviewData() {
+            @Override
+            public void addReviews(List<Review> allReviews) {
+                mostWriting.accumulateAndGet(writing.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    writing.decrementAndGet();
+                }
+            }
+
+            @Override
+            public void finishLoading() {
+            }
+        };
+        ReviewDirectoryTraverser traverser = new ReviewDirectoryTraverser(2, 4, 16, new FixedReviewParser(),
+                new IngestProgress());
+
+        traverser.traverseDirectory(directory.toString(), slowReviewData, new IngestManifest(true));
+        assertTrue(mostWriting.get() > 1, "at most " + mostWriting.get() + " chunk was written at a time");
+    }
+
+    /**
+     * Streams the same reviews for every file
+     */
+    private static class FixedReviewParser extends ReviewParser {
+        @Override
+        public int streamDataFromJson(String path, Consumer<Review> consumer) {
+            try {
+                for (int i = 0; i < REVIEWS_PER_FILE; i++) {
+                    consumer.accept(new Review("h1", path + i, 4, "title", "text", "user" + i, "2024-01-01"));
+                }
+            } catch (InvalidRatingException e) {
+                throw new IllegalStateException(e);
+            }
+            return REVIEWS_PER_FILE;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package hotelapp;
+
+import data.Review;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ReviewParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReviewDirectoryWatcherTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void loadsFilesAddedBetweenRegisterAndStart() throws IOException, InterruptedException {
+        Set<String> hotelIds = ConcurrentHashMap.newKeySet();
+        CountDownLatch loaded = new CountDownLatch(1);
+        ReviewData reviewData = new ReviewData() {
+            @Override
+            public void addReviews(List<Review> allReviews) {
+                for (Review review : allReviews) {
+                    hotelIds.add(review.getHotelId());
+                }
+                loaded.countDown();
+            }
+
+            @Override
+            public void finishLoading() {
+            }
+        };
+        ReviewDirectoryWatcher watcher = new ReviewDirectoryWatcher(directory.toString(), reviewData,
+                new HotelIdParser(), new IngestManifest(true));
+        watcher.register();
+        try {
+            // added while the startup load would run
+            Files.writeString(directory.resolve("42.json"), "{}");
+            watcher.start();
+            assertTrue(loaded.await(20, TimeUnit.SECONDS));
+            assertEquals(Set.of("42"), hotelIds);
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    /**
+     * Streams one review for the hotel named by the file
+     */
+    private static class HotelIdParser extends ReviewParser {
+        @Override
+        public int streamDataFromJson(String path, Consumer<Review> consumer) {
+            String hotelId = Path.of(path).getFileName().toString().replace(".json", "");
+            try {
+                consumer.accept(new Review(hotelId, "1", 4, "title", "text", "user", "2024-01-01"));
+            } catch (InvalidRatingException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A JDBC driver for tests that answers every query with the same number of review rows and counts
+ * the connections, statements and queries it receives. Connection and statement settings are kept in
+ * maps so tests can see what a caller left behind. Tables created with CREATE TABLE are listed by the
+ * database metadata.
+ */
+class FakeDatabase implements Driver {
+    private static final Pattern CREATE_TABLE =
+            Pattern.compile("^\\s*CREATE TABLE if not exists (\\w+)", Pattern.CASE_INSENSITIVE);
+    private static FakeDatabase registered;
+
+    final AtomicInteger connectionsOpened = new AtomicInteger();
+    final AtomicInteger statementsPrepared = new AtomicInteger();
+    final AtomicInteger queriesExecuted = new AtomicInteger();
+    final Map<String, Object> connectionSettings = new HashMap<>();
+    final Map<String, Object> statementSettings = new HashMap<>();
+    final Map<String, AtomicInteger> statementCalls = new HashMap<>();
+    final List<String> updatesExecuted = new CopyOnWriteArrayList<>();
+    final Set<String> tables = ConcurrentHashMap.newKeySet();
+    final AtomicInteger metadataReads = new AtomicInteger();
+    volatile int rows = 0;
+
+    /**
+     * Registers a fake database in place of the real drivers, so DatabaseHandler connects to it. The pool of
+     * DatabaseHandler keeps its connections between tests, so every test gets the same fake database.
+     *
+     * @return the registered fake database
+     * @throws SQLException if the drivers could not be replaced
+     */
+    static synchronized FakeDatabase register() throws SQLException {
+        if (registered == null) {
+            for (Driver driver : Collections.list(DriverManager.getDrivers())) {
+                DriverManager.deregisterDriver(driver);
+            }
+            registered = new FakeDatabase();
+            DriverManager.registerDriver(registered);
+        }
+        return registered;
+    }
+
+    FakeDatabase() {
+        connectionSettings.put("TransactionIsolation", Connection.TRANSACTION_REPEATABLE_READ);
+        connectionSettings.put("ReadOnly", false);
+        connectionSettings.put("Catalog", "hotels");
+        connectionSettings.put("AutoCommit", true);
+        statementSettings.put("FetchSize", 0);
+        statementSettings.put("FetchDirection", ResultSet.FETCH_FORWARD);
+        statementSettings.put("MaxRows", 0);
+        statementSettings.put("MaxFieldSize", 0);
+        statementSettings.put("QueryTimeout", 0);
+    }
+
+    /**
+     * Opens a connection to the fake database
+     *
+     * @return the physical connection
+     */
+    Connection open() {
+        connectionsOpened.incrementAndGet();
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    statementsPrepared.incrementAndGet();
+                    return statement((String) args[0]);
+                case "createStatement":
+                    return statement(null);
+                case "getMetaData":
+                    return proxy(DatabaseMetaData.class, (metaData, metaDataMethod, metaDataArgs) -> {
+                        metadataReads.incrementAndGet();
+                        return tablesResultSet();
+                    });
+                case "isValid":
+                    return true;
+                case "isClosed":
+                    return false;
+                case "unwrap":
+                    return proxy;
+                case "isWrapperFor":
+                    return true;
+                default:
+                    return getOrSet(connectionSettings, method.getName(), args);
+            }
+        });
+    }
+
+    /**
+     * Creates a statement; a plain Statement gets its SQL with each call instead of a prepared SQL
+     */
+    private PreparedStatement statement(String preparedSql) {
+        return proxy(PreparedStatement.class, (proxy, method, args) -> {
+            statementCalls.computeIfAbsent(method.getName(), name -> new AtomicInteger()).incrementAndGet();
+            switch (method.getName()) {
+                case "executeQuery":
+                    queriesExecuted.incrementAndGet();
+                    return resultSet(rows);
+                case "executeUpdate":
+                    String sql = args == null ? preparedSql : (String) args[0];
+                    updatesExecuted.add(sql);
+                    Matcher table = CREATE_TABLE.matcher(sql);
+                    if (table.find()) {
+                        tables.add(table.group(1));
+                    }
+                    return 1;
+                case "isClosed":
+                    return false;
+                default:
+                    return getOrSet(statementSettings, method.getName(), args);
+            }
+        });
+    }
+
+    /**
+     * Creates rows of the reviews table with descending reviewIds and two likes each
+     */
+    private static ResultSet resultSet(int rows) {
+        int[] row = {0};
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] <= rows;
+                case "getInt":
+                    return "reviewId".equals(args[0]) ? rows - row[0] + 1 : "likesCount".equals(args[0]) ? 2 : 4;
+                case "getString":
+                    return "date".equals(args[0]) ? "2024-01-01 10:00:00" : "text";
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Lists the tables of the database as DatabaseMetaData.getTables does
+     */
+    private ResultSet tablesResultSet() {
+        Iterator<String> names = new ArrayList<>(tables).iterator();
+        String[] name = {null};
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    name[0] = names.hasNext() ? names.next() : null;
+                    return name[0] != null;
+                case "getString":
+                    return name[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Answers getX and isX from the settings map and stores the value of setX
+     */
+    private static Object getOrSet(Map<String, Object> settings, String name, Object[] args) {
+        if (name.startsWith("set") && args != null && args.length == 1) {
+            settings.put(name.substring(3), args[0]);
+        } else if (name.startsWith("get")) {
+            return settings.get(name.substring(3));
+        } else if (name.startsWith("is")) {
+            return settings.get(name.substring(2));
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        return acceptsURL(url) ? open() : null;
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url.startsWith("jdbc:mysql:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
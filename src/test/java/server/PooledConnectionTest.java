@@ -0,0 +1,61 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PooledConnectionTest {
+    private final FakeDatabase database = new FakeDatabase();
+    private final ConnectionPool pool = new ConnectionPool("jdbc:mysql://localhost/test", new Properties());
+
+    @Test
+    public void resetRestoresSessionSettings() throws SQLException {
+        PooledConnection pooled = new PooledConnection(database.open(), pool, 0);
+        Connection connection = pooled.checkout();
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setReadOnly(true);
+        connection.setCatalog("other");
+
+        assertTrue(pooled.reset());
+        assertEquals(Connection.TRANSACTION_REPEATABLE_READ, database.connectionSettings.get("TransactionIsolation"));
+        assertEquals(false, database.connectionSettings.get("ReadOnly"));
+        assertEquals("hotels", database.connectionSettings.get("Catalog"));
+    }
+
+    @Test
+    public void closedHandleRejectsEveryCall() throws SQLException {
+        PooledConnection pooled = new PooledConnection(database.open(), pool, 0);
+        Connection connection = pooled.checkout();
+        connection.close();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+        assertThrows(SQLException.class, () -> connection.unwrap(Connection.class));
+        assertThrows(SQLException.class, () -> connection.isWrapperFor(Connection.class));
+        assertThrows(SQLException.class, () -> connection.setReadOnly(true));
+        assertNotSame(connection, pooled.checkout());
+    }
+
+    @Test
+    public void cachedStatementsAreReusedByTheNextBorrower() throws SQLException {
+        PooledConnection pooled = new PooledConnection(database.open(), pool, 4);
+        try (Connection connection = pooled.checkout();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.HOTEL_RATING_SQL)) {
+            statement.setString(1, "h1");
+        }
+        try (Connection connection = pooled.checkout();
+             PreparedStatement statement = connection.prepareStatement(PreparedStatements.HOTEL_RATING_SQL)) {
+            statement.setString(1, "h2");
+        }
+        assertEquals(1, database.statementsPrepared.get());
+    }
+}
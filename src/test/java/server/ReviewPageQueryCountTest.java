@@ -0,0 +1,42 @@
+package server;
+
+import data.Review;
+import data.ReviewPage;
+import hotelapp.ReviewData;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Checks that a page of reviews and their like counts costs one connection and one query,
+ * however many reviews are on the page.
+ */
+public class ReviewPageQueryCountTest {
+    @Test
+    public void pageCostsOneQueryForAnyPageSize() throws SQLException {
+        FakeDatabase database = FakeDatabase.register();
+        ReviewData reviewData = new ReviewData();
+        ConnectionPool pool = DatabaseHandler.getInstance().getConnectionPool();
+        for (int limit : new int[]{1, 5, 50}) {
+            database.rows = limit + 1;
+            int queriesBefore = database.queriesExecuted.get();
+            long borrowsBefore = pool.getAcquireCount();
+
+            ReviewPage page = reviewData.getReviews("h1", null, true, limit);
+            assertEquals(limit, page.getReviews().size());
+            for (Review review : page.getReviews()) {
+                assertEquals(2, review.getLikeCount());
+            }
+            assertEquals(1, database.queriesExecuted.get() - queriesBefore, "queries for " + limit + " reviews");
+            assertEquals(1, pool.getAcquireCount() - borrowsBefore, "connections for " + limit + " reviews");
+
+            assertNotNull(page.getNextCursor());
+            queriesBefore = database.queriesExecuted.get();
+            reviewData.getReviews("h1", page.getNextCursor(), true, limit);
+            assertEquals(1, database.queriesExecuted.get() - queriesBefore, "queries for the next page");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the schema is read and created once at startup, and that table checks afterwards
+ * are answered without the database metadata.
+ */
+public class SchemaBootstrapTest {
+    @Test
+    public void createsTheMissingTablesOnceAndCachesTheSchema() throws SQLException {
+        FakeDatabase database = FakeDatabase.register();
+        database.rows = 0;
+        database.tables.clear();
+        database.tables.add("users");
+        database.tables.add("hotels");
+        database.updatesExecuted.clear();
+
+        SchemaBootstrap bootstrap = new SchemaBootstrap();
+        bootstrap.bootstrap();
+        assertTrue(bootstrap.existedBeforeStartup("users"));
+        assertFalse(bootstrap.existedBeforeStartup("reviews"));
+        assertFalse(database.updatesExecuted.contains(PreparedStatements.CREATE_USER_TABLE));
+        assertFalse(database.updatesExecuted.contains(PreparedStatements.CREATE_HOTELS_TABLE));
+        assertTrue(database.updatesExecuted.contains(PreparedStatements.CREATE_REVIEWS_TABLE));
+        assertTrue(database.updatesExecuted.contains(PreparedStatements.CREATE_REVIEWS_LIKES_TABLE));
+        assertTrue(database.updatesExecuted.contains(PreparedStatements.CREATE_TABLE_EXPEDIA_LINKS));
+
+        int metadataReads = database.metadataReads.get();
+        DatabaseHandler databaseHandler = DatabaseHandler.getInstance();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(databaseHandler.tableExists("reviewsLikes"));
+            assertFalse(databaseHandler.tableExists("missing"));
+        }
+        assertEquals(metadataReads, database.metadataReads.get());
+    }
+}
@@ -0,0 +1,72 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatementCacheTest {
+    private final FakeDatabase database = new FakeDatabase();
+    private final Connection connection = database.open();
+    private final StatementCache cache =
+            new StatementCache(connection, new ConnectionPool("jdbc:mysql://localhost/test", new Properties()), 2);
+
+    @Test
+    public void releaseResetsTheStatement() throws SQLException {
+        PreparedStatement statement = cache.prepare("A");
+        statement.setFetchSize(500);
+        statement.setMaxRows(3);
+        statement.setQueryTimeout(10);
+        statement.addBatch();
+        statement.close();
+
+        assertEquals(0, database.statementSettings.get("FetchSize"));
+        assertEquals(0, database.statementSettings.get("MaxRows"));
+        assertEquals(0, database.statementSettings.get("QueryTimeout"));
+        assertEquals(1, database.statementCalls.get("clearBatch").get());
+        assertEquals(1, database.statementCalls.get("clearParameters").get());
+        assertThrows(SQLException.class, () -> statement.setFetchSize(1));
+        assertTrue(statement.isClosed());
+    }
+
+    @Test
+    public void reusesStatementsThatWereReturned() throws SQLException {
+        PreparedStatement first = cache.prepare("A");
+        assertNull(cache.prepare("A"));
+        first.close();
+        cache.prepare("A").close();
+        assertEquals(1, database.statementsPrepared.get());
+    }
+
+    @Test
+    public void dropsStatementsWithSettingsThatCannotBeReset() throws SQLException {
+        PreparedStatement statement = cache.prepare("A");
+        statement.closeOnCompletion();
+        statement.close();
+        assertEquals(1, database.statementCalls.get("close").get());
+
+        assertNotNull(cache.prepare("A"));
+        assertEquals(2, database.statementsPrepared.get());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedStatement() throws SQLException {
+        cache.prepare("A").close();
+        cache.prepare("B").close();
+        cache.prepare("A").close();
+        cache.prepare("C").close();
+        cache.prepare("A").close();
+        cache.releaseAll();
+        assertEquals(3, database.statementsPrepared.get());
+        cache.prepare("B").close();
+        assertEquals(4, database.statementsPrepared.get());
+    }
+}
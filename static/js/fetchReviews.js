@@ -1,61 +1,99 @@
+// cursors of the pages around the page that is shown, and the request that loaded it
+let nextCursor = null;
+let prevCursor = null;
+let currentRequest = {cursor: null, direction: "next"};
+let pastEnd = false;
+
 function fetchReviews(action) {
 
     let hotelId = document.getElementById("hotelId").innerText.replace("Id: ", "").trim();
 
-    fetch(`/hotelReviews?hotelId=` + hotelId + '&action=' + action)
+    let request = {cursor: null, direction: "next"};
+    if (action === "next") {
+        if (nextCursor === null) {
+            pastEnd = true;
+            showReviews(hotelId, []);
+            return;
+        }
+        request = {cursor: nextCursor, direction: "next"};
+    } else if (action === "back") {
+        if (pastEnd) {
+            request = currentRequest;
+        } else if (prevCursor !== null) {
+            request = {cursor: prevCursor, direction: "prev"};
+        }
+    }
+
+    let url = `/hotelReviews?hotelId=` + hotelId + '&direction=' + request.direction;
+    if (request.cursor !== null) {
+        url += '&cursor=' + encodeURIComponent(request.cursor);
+    }
+    fetch(url)
         .then(response => response.json())
-        .then(reviews => {
-            const reviewsContainer = document.getElementById("reviews-container");
-            reviewsContainer.innerHTML = "";
-            if (reviews.noMoreReviews) {
-                const noMoreReviewsMessage = document.createElement("div");
-                noMoreReviewsMessage.classList.add("no-more-reviews");
-                noMoreReviewsMessage.innerText = "No more reviews available.";
-                reviewsContainer.appendChild(noMoreReviewsMessage);
+        .then(page => {
+            if (page.reviews.length > 0) {
+                nextCursor = page.nextCursor === undefined ? null : page.nextCursor;
+                prevCursor = page.prevCursor === undefined ? null : page.prevCursor;
+                currentRequest = request;
+                pastEnd = false;
             } else {
-                reviews.forEach(review => {
-                    const reviewDiv = document.createElement("div");
-                    reviewDiv.classList.add("review-container");
+                pastEnd = true;
+            }
+            showReviews(hotelId, page.reviews);
+        });
+}
 
-                    reviewDiv.innerHTML = `
-                    <div class="review-title">Title: ${review.title}</div>
-                    <div class="review-content">
-                        <p>Date: ${review.formattedDate}</p>
-                        <p>Rating: ${review.rating}</p>
-                        <br>
-                        <p>${review.text}</p>
-                        <br>
-                        <p>Review By: ${review.nickName}</p>
-                     
-                        <button class="btn btn-outline-primary btn-sm" onclick="likeReview(${review.reviewId})"><i class="bi bi-hand-thumbs-up"></i> Like</button>
-                        <p id="like-count-${review.reviewId}">${review.likeCount}</p>users found this review helpful
-                    </div>
-                    
-                `;
-                    let currentUsername = document.getElementById("username").value;
+function showReviews(hotelId, reviews) {
+    const reviewsContainer = document.getElementById("reviews-container");
+    reviewsContainer.innerHTML = "";
+    if (reviews.length === 0) {
+        const noMoreReviewsMessage = document.createElement("div");
+        noMoreReviewsMessage.classList.add("no-more-reviews");
+        noMoreReviewsMessage.innerText = "No more reviews available.";
+        reviewsContainer.appendChild(noMoreReviewsMessage);
+    } else {
+        reviews.forEach(review => {
+            const reviewDiv = document.createElement("div");
+            reviewDiv.classList.add("review-container");
 
-                    if (currentUsername === review.nickName) {
-                        const editDeleteForm = `
-                        <div>
-                            <form action="/editReview" method="get">
-                                <input type="hidden" name="reviewId" value="${review.reviewId}">
-                                <input type="hidden" name="hotelId" value="${hotelId}">
-                                <button type="submit"  class="btn btn-secondary">Edit</button>
-                            </form>
-                            <form action="/deleteReview" method="get">
-                                <input type="hidden" name="reviewId" value="${review.reviewId}">
-                                <input type="hidden" name="hotelId" value="${hotelId}">
-                                <button type="submit"  class="btn btn-danger">Delete</button>
-                            </form>
-                            
-                        </div>
-                    `;
-                        reviewDiv.innerHTML += editDeleteForm;
-                    }
-                    reviewsContainer.appendChild(reviewDiv);
-                });
+            reviewDiv.innerHTML = `
+            <div class="review-title">Title: ${review.title}</div>
+            <div class="review-content">
+                <p>Date: ${review.formattedDate}</p>
+                <p>Rating: ${review.rating}</p>
+                <br>
+                <p>${review.text}</p>
+                <br>
+                <p>Review By: ${review.nickName}</p>
+             
+                <button class="btn btn-outline-primary btn-sm" onclick="likeReview(${review.reviewId})"><i class="bi bi-hand-thumbs-up"></i> Like</button>
+                <p id="like-count-${review.reviewId}">${review.likeCount}</p>users found this review helpful
+            </div>
+            
+        `;
+            let currentUsername = document.getElementById("username").value;
+
+            if (currentUsername === review.nickName) {
+                const editDeleteForm = `
+                <div>
+                    <form action="/editReview" method="get">
+                        <input type="hidden" name="reviewId" value="${review.reviewId}">
+                        <input type="hidden" name="hotelId" value="${hotelId}">
+                        <button type="submit"  class="btn btn-secondary">Edit</button>
+                    </form>
+                    <form action="/deleteReview" method="get">
+                        <input type="hidden" name="reviewId" value="${review.reviewId}">
+                        <input type="hidden" name="hotelId" value="${hotelId}">
+                        <button type="submit"  class="btn btn-danger">Delete</button>
+                    </form>
+                    
+                </div>
+            `;
+                reviewDiv.innerHTML += editDeleteForm;
             }
+            reviewsContainer.appendChild(reviewDiv);
         });
+    }
 }
 
 function likeReview(reviewId) {
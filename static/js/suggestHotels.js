@@ -0,0 +1,23 @@
+let suggestTimer = null;
+
+function suggestHotels(input) {
+    const query = input.value;
+    clearTimeout(suggestTimer);
+    if (query.trim() === "") {
+        document.getElementById("hotelSuggestions").innerHTML = "";
+        return;
+    }
+    suggestTimer = setTimeout(() => {
+        fetch('/api/suggest?q=' + encodeURIComponent(query), {method: 'GET'}).then(res => res.json()).then(data => {
+            const list = document.getElementById("hotelSuggestions");
+            list.innerHTML = "";
+            data.forEach(hotel => {
+                const option = document.createElement("option");
+                option.value = hotel.name;
+                list.appendChild(option);
+            });
+        }).catch(err => {
+            document.getElementById("hotelSuggestions").innerHTML = "";
+        });
+    }, 150);
+}